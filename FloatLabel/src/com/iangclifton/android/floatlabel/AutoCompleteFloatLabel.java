@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2014 Ian G. Clifton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iangclifton.android.floatlabel;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.widget.AutoCompleteTextView;
+import android.widget.EditText;
+
+/**
+ * FloatLabel whose EditText is an {@link AutoCompleteTextView}.<br>
+ * <br>
+ * Any ListAdapter that is also Filterable can be used for the suggestions, but for large
+ * sets of suggestions {@link #setSuggestions(PrefixIndex)} avoids the linear scan that
+ * ArrayAdapter does on every keystroke. A custom layout must use an AutoCompleteTextView
+ * for the EditText.
+ *
+ * @author Ian G. Clifton
+ */
+public class AutoCompleteFloatLabel extends FloatLabel {
+
+    public AutoCompleteFloatLabel(Context context) {
+        super(context);
+    }
+
+    public AutoCompleteFloatLabel(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    public AutoCompleteFloatLabel(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+    }
+
+    /**
+     * Returns the AutoCompleteTextView
+     *
+     * @return the AutoCompleteTextView
+     */
+    public AutoCompleteTextView getAutoCompleteTextView() {
+        return (AutoCompleteTextView) getEditText();
+    }
+
+    /**
+     * Suggests the entries of the given PrefixIndex that start with the typed text
+     *
+     * @param index PrefixIndex to suggest entries from
+     */
+    public void setSuggestions(PrefixIndex index) {
+        getAutoCompleteTextView().setAdapter(new PrefixIndexAdapter(getContext(), index));
+    }
+
+    @Override
+    /*package*/ int getDefaultLayout() {
+        return R.layout.float_label_autocomplete;
+    }
+
+    @Override
+    /*package*/ EditText createEditText(Context context) {
+        return new AutoCompleteTextView(context);
+    }
+}
@@ -0,0 +1,380 @@
+/*
+ * Copyright (C) 2014 Ian G. Clifton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iangclifton.android.floatlabel;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Saves the text of FloatLabels to a file as it is edited, so drafts survive the process
+ * being killed.<br>
+ * <br>
+ * Give each FloatLabel a stable key with {@link FloatLabel#setDraftKey(DraftStore, String)}.
+ * Edits are coalesced on the main thread as the latest String of each key and, once editing
+ * pauses, handed to a background thread as one batch. No Views are kept. Batches are appended to the
+ * file as key/value records; when most of the records are outdated, the file is rewritten
+ * with only the current values. The main thread never reads or writes the file.<br>
+ * <br>
+ * Use one DraftStore per file, typically one per form kept for the life of the process. All
+ * DraftStores share one background thread, which does not keep the process alive.
+ *
+ * @author Ian G. Clifton
+ */
+public class DraftStore {
+    private static final String TAG = "DraftStore";
+
+    /**
+     * Default delay after the last edit before writing, in milliseconds
+     */
+    private static final long DEFAULT_WRITE_DELAY = 1000;
+
+    /**
+     * Records beyond the number of values before the file is compacted
+     */
+    private static final int COMPACTION_SLACK = 64;
+
+    /**
+     * Value length recorded for a removed key
+     */
+    private static final int REMOVED = -1;
+
+    /**
+     * Background thread shared by all DraftStores; created when first needed
+     */
+    private static ExecutorService sExecutor;
+
+    private final File mFile;
+    private final long mWriteDelay;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Executor mExecutor;
+
+    /**
+     * Main thread only: values edited, set or removed since the last batch, by key; null
+     * values are removals
+     */
+    private HashMap<String, String> mPending = new HashMap<String, String>();
+
+    /**
+     * Background thread only: current values, loaded from the file on first use
+     */
+    private HashMap<String, String> mValues;
+
+    /**
+     * Background thread only: number of records in the file
+     */
+    private int mRecordCount;
+
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    /**
+     * Creates a DraftStore that writes one second after editing pauses
+     *
+     * @param file File to store drafts in; it is created when first needed
+     */
+    public DraftStore(File file) {
+        this(file, DEFAULT_WRITE_DELAY);
+    }
+
+    /**
+     * Creates a DraftStore
+     *
+     * @param file File to store drafts in; it is created when first needed
+     * @param writeDelayMillis long milliseconds to wait after the last edit before writing
+     */
+    public DraftStore(File file, long writeDelayMillis) {
+        this(file, writeDelayMillis, getSharedExecutor());
+    }
+
+    /**
+     * Creates a DraftStore that reads and writes on the given Executor, which must run tasks
+     * one at a time in order
+     *
+     * @param file File to store drafts in; it is created when first needed
+     * @param writeDelayMillis long milliseconds to wait after the last edit before writing
+     * @param executor Executor for file access
+     */
+    /*package*/ DraftStore(File file, long writeDelayMillis, Executor executor) {
+        mFile = file;
+        mWriteDelay = writeDelayMillis;
+        mExecutor = executor;
+    }
+
+    /**
+     * Callback for values loaded from a DraftStore
+     */
+    public interface OnDraftLoadedListener {
+
+        /**
+         * Called on the main thread with the stored value
+         *
+         * @param key String key that was loaded
+         * @param value String stored value or null if there is none
+         */
+        public void onDraftLoaded(String key, String value);
+    }
+
+    /**
+     * Loads a value in the background
+     *
+     * @param key String key to load
+     * @param listener OnDraftLoadedListener called on the main thread with the value
+     */
+    public void load(final String key, final OnDraftLoadedListener listener) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final String value = getValues().get(key);
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onDraftLoaded(key, value);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Stores a value with the next batch. Must be called on the main thread.
+     *
+     * @param key String key
+     * @param value String value
+     */
+    public void put(String key, String value) {
+        mPending.put(key, value);
+        scheduleFlush();
+    }
+
+    /**
+     * Removes a value with the next batch, such as once a form is submitted. Must be called on
+     * the main thread.
+     *
+     * @param key String key to remove
+     */
+    public void remove(String key) {
+        mPending.put(key, null);
+        scheduleFlush();
+    }
+
+    /**
+     * Hands any pending edits to the background thread now, such as from onPause. This does
+     * not wait for them to be written. Must be called on the main thread.
+     */
+    public void flush() {
+        mHandler.removeCallbacks(mFlushRunnable);
+        if (mPending.isEmpty()) {
+            return;
+        }
+
+        final HashMap<String, String> batch = mPending;
+        mPending = new HashMap<String, String>();
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                write(batch);
+            }
+        });
+    }
+
+    /**
+     * Called by a FloatLabel when its text is edited. Must be called on the main thread.
+     *
+     * @param key String key of the FloatLabel
+     * @param text CharSequence text after the edit
+     */
+    /*package*/ void onTextChanged(String key, CharSequence text) {
+        put(key, text.toString());
+    }
+
+    private void scheduleFlush() {
+        mHandler.removeCallbacks(mFlushRunnable);
+        mHandler.postDelayed(mFlushRunnable, mWriteDelay);
+    }
+
+    /**
+     * Returns the current values, reading the file the first time
+     */
+    private HashMap<String, String> getValues() {
+        if (mValues != null) {
+            return mValues;
+        }
+        mValues = new HashMap<String, String>();
+        mRecordCount = 0;
+        boolean truncated = false;
+        DataInputStream in = null;
+        try {
+            final long fileLength = mFile.length();
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)));
+            while (in.available() > 0) {
+                final String key = readString(in, fileLength);
+                final String value = readString(in, fileLength);
+                if (value == null) {
+                    mValues.remove(key);
+                } else {
+                    mValues.put(key, value);
+                }
+                mRecordCount++;
+            }
+        } catch (FileNotFoundException e) {
+            // No drafts yet
+        } catch (EOFException e) {
+            // A record cut short by the process dying
+            truncated = true;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read drafts from " + mFile, e);
+        } finally {
+            closeQuietly(in);
+        }
+        if (truncated) {
+            // Records appended after a partial one could not be read back
+            compact(mValues);
+        }
+        return mValues;
+    }
+
+    /**
+     * Applies a batch, appending it to the file or compacting the file
+     */
+    private void write(HashMap<String, String> batch) {
+        final HashMap<String, String> values = getValues();
+        final File parent = mFile.getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        for (Map.Entry<String, String> entry : batch.entrySet()) {
+            if (entry.getValue() == null) {
+                values.remove(entry.getKey());
+            } else {
+                values.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        if (mRecordCount + batch.size() > values.size() * 2 + COMPACTION_SLACK) {
+            compact(values);
+        } else if (writeRecords(mFile, batch, true)) {
+            mRecordCount += batch.size();
+        } else {
+            // The file may now end in a partial record, so rewrite it
+            compact(values);
+        }
+    }
+
+    /**
+     * Rewrites the file with only the current values
+     */
+    private void compact(HashMap<String, String> values) {
+        final File temp = new File(mFile.getPath() + ".tmp");
+        if (!writeRecords(temp, values, false) || !temp.renameTo(mFile)) {
+            Log.w(TAG, "Failed to compact drafts in " + mFile);
+            temp.delete();
+            return;
+        }
+        mRecordCount = values.size();
+    }
+
+    private static boolean writeRecords(File file, HashMap<String, String> records, boolean append) {
+        DataOutputStream out = null;
+        try {
+            final FileOutputStream fos = new FileOutputStream(file, append);
+            out = new DataOutputStream(new BufferedOutputStream(fos));
+            for (Map.Entry<String, String> entry : records.entrySet()) {
+                writeString(out, entry.getKey());
+                writeString(out, entry.getValue());
+            }
+            out.flush();
+            fos.getFD().sync();
+            return true;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write drafts to " + file, e);
+            return false;
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(REMOVED);
+            return;
+        }
+        final byte[] bytes = value.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in, long maxLength) throws IOException {
+        final int length = in.readInt();
+        if (length == REMOVED) {
+            return null;
+        }
+        if (length < 0 || length > maxLength) {
+            // Only a record cut short can end in garbage
+            throw new EOFException();
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    private static synchronized ExecutorService getSharedExecutor() {
+        if (sExecutor == null) {
+            sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    final Thread thread = new Thread(r, TAG);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sExecutor;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+    }
+}
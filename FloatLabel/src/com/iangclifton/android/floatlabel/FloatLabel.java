@@ -16,22 +16,50 @@
 package com.iangclifton.android.floatlabel;
 
 import android.annotation.TargetApi;
+import android.animation.ValueAnimator;
+import android.app.ActivityManager;
+import android.content.ContentResolver;
 import android.content.Context;
 import android.content.res.ColorStateList;
 import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.os.AsyncTask;
 import android.os.Build;
-import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Parcel;
 import android.os.Parcelable;
+import android.os.SystemClock;
+import android.provider.Settings;
 import android.text.Editable;
+import android.text.InputFilter;
 import android.text.InputType;
+import android.text.Layout;
+import android.text.TextPaint;
+import android.text.TextUtils;
 import android.text.TextWatcher;
 import android.util.AttributeSet;
+import android.util.DisplayMetrics;
+import android.util.SparseArray;
+import android.util.TypedValue;
+import android.view.ContextThemeWrapper;
 import android.view.Gravity;
 import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewPropertyAnimator;
+import android.view.animation.AnimationUtils;
+import android.view.inputmethod.InputMethodManager;
 import android.widget.EditText;
 import android.widget.FrameLayout;
 import android.widget.TextView;
 
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+
 /**
  * A ViewGroup that consists of an EditText and a TextView as the label.<br>
  * <br>
@@ -39,7 +67,20 @@ import android.widget.TextView;
  * TextView label is displayed.<br>
  * <br>
  * You can set the label programmatically with either
- * {@link #setLabel(CharSequence)} or {@link #setLabel(int)}.
+ * {@link #setLabel(CharSequence)} or {@link #setLabel(int)}.<br>
+ * <br>
+ * Setting the <code>flattenLabel</code> attribute to true removes the label
+ * TextView from the View hierarchy. The FloatLabel then draws the label text
+ * itself, which saves a measure, layout and draw pass per field on long forms.<br>
+ * <br>
+ * Setting the <code>lazyLabel</code> attribute to true defers creating the label
+ * TextView until the field is first filled in. Its space is reserved from the
+ * font metrics, so the layout does not shift when it is created.<br>
+ * <br>
+ * Setting the <code>displayMode</code> attribute to true draws the text as
+ * static text for screens where most fields are only reviewed. The EditText is
+ * created when the field is focused or tapped or when {@link #getEditText()}
+ * is called.
  * 
  * @author Ian G. Clifton
  * @see <a
@@ -48,17 +89,84 @@ import android.widget.TextView;
  */
 public class FloatLabel extends FrameLayout {
 
-    private static final String SAVE_STATE_KEY_EDIT_TEXT = "saveStateEditText";
-    private static final String SAVE_STATE_KEY_LABEL = "saveStateLabel";
-    private static final String SAVE_STATE_PARENT = "saveStateParent";
-    private static final String SAVE_STATE_TAG = "saveStateTag";
-    private static final String SAVE_STATE_KEY_FOCUS = "saveStateFocus";
+    /**
+     * Animation profile that animates the label whenever it is visible
+     */
+    public static final int ANIMATION_PROFILE_FULL = 0;
+
+    /**
+     * Animation profile that animates the label except on low-RAM devices
+     */
+    public static final int ANIMATION_PROFILE_AUTO = 1;
+
+    /**
+     * Animation profile that never animates the label
+     */
+    public static final int ANIMATION_PROFILE_NONE = 2;
+
+    /**
+     * Color used to show validation errors when floatLabelErrorColor is not set
+     */
+    private static final int DEFAULT_ERROR_COLOR = 0xFFCC0000;
+
+    /**
+     * Default delay after the last edit before validating, in milliseconds
+     */
+    private static final long DEFAULT_VALIDATION_DELAY = 300;
+
+    /**
+     * Top margin of the EditText in the default layout, -7dp, as complex dimension data
+     */
+    private static final int EDIT_TEXT_TOP_MARGIN = (-7 << TypedValue.COMPLEX_MANTISSA_SHIFT)
+            | (TypedValue.COMPLEX_RADIX_23p0 << TypedValue.COMPLEX_RADIX_SHIFT)
+            | (TypedValue.COMPLEX_UNIT_DIP << TypedValue.COMPLEX_UNIT_SHIFT);
+
+    /**
+     * Attributes of the theme's EditText style that {@link #applyStyle(Context, int)} applies,
+     * sorted by ID as obtainStyledAttributes requires
+     */
+    private static final int[] EDIT_TEXT_STYLE_ATTRS = new int[] {android.R.attr.textAppearance,
+            android.R.attr.textColor, android.R.attr.textColorHint, android.R.attr.background};
+
+    /**
+     * Handler for returning background results to the main thread. View.post cannot be used
+     * from other threads because, before API 24, posts made while the View is detached go to
+     * the posting thread's queue and are lost.
+     */
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
 
     /**
      * Reference to the EditText
      */
     private EditText mEditText;
 
+    /**
+     * In display mode, the Builder used to create the EditText once it is needed; null once
+     * the EditText exists
+     */
+    private Builder mDisplayBuilder;
+
+    /**
+     * In display mode, the text and hint drawn in place of the EditText
+     */
+    private CharSequence mDisplayText;
+    private CharSequence mDisplayHint;
+
+    /**
+     * In display mode, the paint, colors and spacing used to draw the text like the EditText
+     */
+    private TextPaint mDisplayPaint;
+    private int mDisplayTextColor;
+    private int mDisplayHintColor;
+    private final Rect mDisplayPadding = new Rect();
+    private int mDisplayTopMargin;
+
+    /**
+     * In display mode, the measured size of the text area that stands in for the EditText
+     */
+    private int mDisplayWidth;
+    private int mDisplayHeight;
+
     /**
      * When init is complete, child views can no longer be added
      */
@@ -69,10 +177,94 @@ public class FloatLabel extends FrameLayout {
      */
     private TextView mLabel;
 
+    /**
+     * Paint used to reserve space for the label until it is created in lazy label mode;
+     * null once the label exists
+     */
+    private TextPaint mLazyLabelPaint;
+
+    /**
+     * ID to give the label when it is created in lazy label mode
+     */
+    private int mLazyLabelId;
+
+    /**
+     * Label color and hint colors from the attributes, the Builder or a style, which take
+     * precedence over the theme; 0 and null if not set
+     */
+    private int mFloatLabelColor;
+    private ColorStateList mCustomHintColors;
+
+    /**
+     * Context whose theme the last {@link #applyStyle(Context, int)} used, so that children
+     * created later get the same theme; null if no style has been applied
+     */
+    private Context mStyleContext;
+
+    /**
+     * True if the label TextView is not a child and is drawn by this View instead
+     */
+    private boolean mLabelFlattened;
+
+    /**
+     * Cached Layout used to draw the flattened label
+     */
+    private Layout mFlatLabelLayout;
+
+    /**
+     * Label text that mFlatLabelLayout was looked up for
+     */
+    private CharSequence mFlatLabelText;
+
+    /**
+     * Text attributes that mFlatLabelLayout was looked up with, copied from the label TextView
+     */
+    private TextPaint mFlatLabelPaint;
+
+    /**
+     * True if the label is known to be a single line, so it can be sized from its font metrics
+     */
+    private boolean mSingleLineLabel;
+
+    /**
+     * Width and height of a single line label computed from its font metrics
+     */
+    private int mLabelWidth;
+    private int mLabelHeight;
+
+    /**
+     * True once this View has been measured
+     */
+    private boolean mHasMeasured;
+
+    /**
+     * Time in animation milliseconds until which the flattened label should keep redrawing
+     */
+    private long mFlatLabelAnimationEnd;
+
+    /**
+     * Label properties as of the last time the flattened label was drawn
+     */
+    private float mFlatLabelAlpha;
+    private float mFlatLabelX;
+    private float mFlatLabelY;
+    private float mFlatLabelScaleX;
+    private float mFlatLabelScaleY;
+
+    /**
+     * Reusable FontMetricsInt for sizing the label
+     */
+    private final Paint.FontMetricsInt mFontMetrics = new Paint.FontMetricsInt();
+
+    /**
+     * Default LabelAnimator, kept so that it is only created once per FloatLabel
+     */
+    private final DefaultLabelAnimator mDefaultLabelAnimator = new DefaultLabelAnimator();
+
     /**
      * LabelAnimator that animates the appearance and disappearance of the label TextView
      */
-    private LabelAnimator mLabelAnimator = new DefaultLabelAnimator();
+    private LabelAnimator mLabelAnimator = mDefaultLabelAnimator;
 
     /**
      * True if the TextView label is showing (alpha 1f)
@@ -82,7 +274,7 @@ public class FloatLabel extends FrameLayout {
     /**
      * Holds saved state if any is waiting to be restored
      */
-    private Bundle mSavedState;
+    private SavedState mSavedState;
 
     /**
      * True when any setTextWithoutAnimation method is called and then immediately turned false
@@ -90,6 +282,194 @@ public class FloatLabel extends FrameLayout {
      */
     private boolean mSkipAnimation = false;
 
+    /**
+     * TextWatcher supplied by {@link #bind(CharSequence, CharSequence, TextWatcher)}
+     */
+    private TextWatcher mBoundTextWatcher;
+
+    /**
+     * True while {@link #bind(CharSequence, CharSequence, TextWatcher)} is updating the views
+     */
+    private boolean mBinding;
+
+    /**
+     * True while a {@link FloatLabelGroup} transaction is applying updates
+     */
+    private boolean mInBatch;
+
+    /**
+     * True if layout was requested during a batch and has to be requested once it ends
+     */
+    private boolean mLayoutRequestedInBatch;
+
+    /**
+     * True if the text changed during a batch and has to be validated once it ends
+     */
+    private boolean mValidationNeededInBatch;
+
+    /**
+     * True if the value was edited during a batch and has to be delivered once it ends
+     */
+    private boolean mValueEditedInBatch;
+
+    /**
+     * True if the draft was edited during a batch and has to be saved once it ends
+     */
+    private boolean mDraftEditedInBatch;
+
+    /**
+     * Incremented on every text change so that stale validation results and drafts are dropped
+     */
+    private int mTextGeneration;
+
+    /**
+     * Validator run in the background after edits, or null
+     */
+    private Validator mValidator;
+
+    /**
+     * Executor that validators run on
+     */
+    private Executor mValidationExecutor;
+
+    /**
+     * Delay after the last edit before validating, in milliseconds
+     */
+    private long mValidationDelay;
+
+    /**
+     * Incremented on every edit so that validation of older text is skipped or ignored
+     */
+    private volatile int mValidationGeneration;
+
+    /**
+     * Delivers the latest value to the ValueObserver, or null if there is none
+     */
+    private ValueDelivery mValueDelivery;
+
+    /**
+     * Milliseconds to wait after the last edit before delivering the value, and the longest
+     * that continuous edits can hold back a delivery, or 0 for no limit
+     */
+    private long mValueDebounce;
+    private long mValueThrottle;
+
+    /**
+     * Uptime of the first edit not yet delivered, or -1 if there is none, and of the last
+     * delivery
+     */
+    private long mFirstUndeliveredEdit = -1;
+    private long mLastValueDelivery;
+
+    /**
+     * Current validation error, or null if the text is valid or has not been validated
+     */
+    private CharSequence mError;
+
+    /**
+     * Color used for the label and hint while there is a validation error
+     */
+    private int mErrorColor = DEFAULT_ERROR_COLOR;
+
+    /**
+     * Label text and label and hint colors to restore once the error is cleared
+     */
+    private CharSequence mLabelText;
+    private ColorStateList mLabelColors;
+    private ColorStateList mHintColors;
+
+    /**
+     * Keeps the length of the text up to date while the counter is enabled, or null
+     */
+    private LengthCounter mLengthCounter;
+
+    /**
+     * Maximum length shown by the counter, or 0 for no maximum
+     */
+    private int mCounterMaxLength;
+
+    /**
+     * Paint for the counter, which is drawn at the end of the label row
+     */
+    private TextPaint mCounterPaint;
+
+    /**
+     * Reused buffer for the counter text, such as "120/140"
+     */
+    private final char[] mCounterChars = new char[23];
+
+    /**
+     * Count shown the last time the counter was drawn, so it is only redrawn when it changes
+     */
+    private int mCounterShown = -1;
+
+    /**
+     * One of the ANIMATION_PROFILE constants
+     */
+    private int mAnimationProfile = ANIMATION_PROFILE_FULL;
+
+    /**
+     * System animator duration scale, read when this View is attached
+     */
+    private float mAnimatorDurationScale = 1f;
+
+    /**
+     * Reused for checking whether any part of this View is on screen
+     */
+    private final Rect mVisibleRect = new Rect();
+
+    /**
+     * Whether the device is a low-RAM device; null until first checked
+     */
+    private static Boolean sLowRamDevice;
+
+    /**
+     * DraftStore the text is saved to, or null
+     */
+    private DraftStore mDraftStore;
+
+    /**
+     * Key of this FloatLabel's draft in mDraftStore
+     */
+    private String mDraftKey;
+
+    /**
+     * True while a restored draft is being set, so that it is not saved again
+     */
+    private boolean mRestoringDraft;
+
+    /**
+     * Starts validating the current text once edits have paused
+     */
+    private final Runnable mValidationStarter = new Runnable() {
+        @Override
+        public void run() {
+            if (mValidator != null) {
+                mValidationExecutor.execute(new ValidationTask(mValidator, mValidationGeneration,
+                        getCurrentText().toString()));
+            }
+        }
+    };
+
+    /**
+     * Delivers the current text to the ValueObserver once edits have paused
+     */
+    private final Runnable mValueDeliverer = new Runnable() {
+        @Override
+        public void run() {
+            if (mValueDelivery != null && mFirstUndeliveredEdit >= 0) {
+                mFirstUndeliveredEdit = -1;
+                mLastValueDelivery = SystemClock.uptimeMillis();
+                mValueDelivery.deliver(getCurrentText().toString());
+            }
+        }
+    };
+
+    /**
+     * Tracks frames during label animations; null unless a LabelAnimationStatsListener is set
+     */
+    private LabelAnimationMonitor mLabelAnimationMonitor;
+
     /**
      * Interface for providing custom animations to the label TextView.
      */
@@ -110,54 +490,379 @@ public class FloatLabel extends FrameLayout {
         public void onHideLabel(View label);
     }
 
-    public FloatLabel(Context context) {
-        this(context, null, 0);
-    }
+    /**
+     * Interface for validating the text of a FloatLabel in the background.
+     *
+     * @see FloatLabel#setValidator(Validator, long, Executor)
+     */
+    public interface Validator {
 
-    public FloatLabel(Context context, AttributeSet attrs) {
-        this(context, attrs, 0);
+        /**
+         * Called on a background thread to validate the text
+         *
+         * @param text String snapshot of the EditText's text
+         * @return error message to show in place of the label, or null if the text is valid
+         */
+        public CharSequence validate(String text);
     }
 
-    public FloatLabel(Context context, AttributeSet attrs, int defStyle) {
-        super(context, attrs, defStyle);
-        init(context, attrs, defStyle);
+    /**
+     * Interface for observing the value of a FloatLabel off the main thread, such as for
+     * search-as-you-type.
+     *
+     * @see FloatLabel#setValueObserver(ValueObserver, long, long, Executor)
+     */
+    public interface ValueObserver {
+
+        /**
+         * Called on the observer's Executor with the latest value. Calls are never concurrent
+         * and are in the order of the edits, but values that were replaced before they could
+         * be delivered are skipped.
+         *
+         * @param value String snapshot of the text
+         */
+        public void onValueChanged(String value);
     }
 
-    @Override
-    public void addView(View child) {
-        if (mInitComplete) {
-            throw new UnsupportedOperationException("You cannot add child views to a FloatLabel");
-        } else {
-            super.addView(child);
-        }
+    /**
+     * Interface for receiving frame statistics of label animations, such as for reporting
+     * dropped frames when a custom LabelAnimator is in use.
+     *
+     * @see LabelAnimationStats
+     */
+    public interface LabelAnimationStatsListener {
+
+        /**
+         * Called on the main thread when a label animation has finished or was interrupted
+         *
+         * @param floatLabel FloatLabel whose label was animated
+         * @param displayed boolean true if the label was being shown; false if hidden
+         * @param frameCount int number of frames drawn during the animation
+         * @param missedFrames int number of frames that were skipped because a frame took too long
+         * @param longestFrameNanos long duration of the longest frame in nanoseconds
+         * @param durationNanos long duration of the whole animation in nanoseconds
+         */
+        public void onLabelAnimationFinished(FloatLabel floatLabel, boolean displayed, int frameCount,
+                int missedFrames, long longestFrameNanos, long durationNanos);
     }
 
-    @Override
-    public void addView(View child, int index) {
-        if (mInitComplete) {
-            throw new UnsupportedOperationException("You cannot add child views to a FloatLabel");
-        } else {
-            super.addView(child, index);
+    /**
+     * Builds a FloatLabel entirely in code. The default label TextView and EditText are
+     * created directly instead of inflating the float_label layout, which makes this the
+     * cheapest way to create a FloatLabel for forms built at runtime.
+     */
+    public static class Builder {
+        private final Context mContext;
+        private int mLayout;
+        private int mEditTextId = R.id.edit_text;
+        private int mLabelId = R.id.float_label;
+        private CharSequence mText;
+        private CharSequence mHint;
+        private ColorStateList mHintColor;
+        private int mFloatLabelColor;
+        private int mErrorColor;
+        private int mImeOptions;
+        private int mInputType;
+        private int mNextFocusDownId = NO_ID;
+        private int mNextFocusForwardId = NO_ID;
+        private int mNextFocusLeftId = NO_ID;
+        private int mNextFocusRightId = NO_ID;
+        private int mNextFocusUpId = NO_ID;
+        private boolean mFlattenLabel;
+        private String mInputMask;
+        private boolean mCounterEnabled;
+        private int mCounterMaxLength;
+        private int mAnimationProfile;
+        private boolean mLazyLabel;
+        private boolean mDisplayMode;
+
+        /**
+         * @param context Context used to create the FloatLabel
+         */
+        public Builder(Context context) {
+            mContext = context;
         }
-    }
 
-    @Override
-    public void addView(View child, int index, android.view.ViewGroup.LayoutParams params) {
-        if (mInitComplete) {
-            throw new UnsupportedOperationException("You cannot add child views to a FloatLabel");
-        } else {
-            super.addView(child, index, params);
+        /**
+         * Creates a new FloatLabel with the values set on this Builder
+         *
+         * @return the new FloatLabel
+         */
+        public FloatLabel build() {
+            return new FloatLabel(mContext, this);
         }
-    }
 
-    @Override
-    public void addView(View child, int width, int height) {
-        if (mInitComplete) {
-            throw new UnsupportedOperationException("You cannot add child views to a FloatLabel");
-        } else {
-            super.addView(child, width, height);
+        /**
+         * Sets a layout to inflate instead of creating the default views in code
+         *
+         * @param layout int layout resource ID containing the label and EditText
+         * @return this Builder
+         */
+        public Builder setLayout(int layout) {
+            mLayout = layout;
+            return this;
         }
-    }
+
+        /**
+         * @param id int ID to give the EditText
+         * @return this Builder
+         */
+        public Builder setEditTextId(int id) {
+            mEditTextId = id;
+            return this;
+        }
+
+        /**
+         * @param id int ID to give the label TextView
+         * @return this Builder
+         */
+        public Builder setLabelId(int id) {
+            mLabelId = id;
+            return this;
+        }
+
+        /**
+         * @param resid int String resource ID to use as the label and hint
+         * @return this Builder
+         */
+        public Builder setLabel(int resid) {
+            mHint = mContext.getText(resid);
+            return this;
+        }
+
+        /**
+         * @param label CharSequence to use as the label and hint
+         * @return this Builder
+         */
+        public Builder setLabel(CharSequence label) {
+            mHint = label;
+            return this;
+        }
+
+        /**
+         * @param text CharSequence to set on the EditText without animation
+         * @return this Builder
+         */
+        public Builder setText(CharSequence text) {
+            mText = text;
+            return this;
+        }
+
+        /**
+         * @param hintColor ColorStateList to use for the EditText hint
+         * @return this Builder
+         */
+        public Builder setHintTextColor(ColorStateList hintColor) {
+            mHintColor = hintColor;
+            return this;
+        }
+
+        /**
+         * @param color int color to use for the label
+         * @return this Builder
+         */
+        public Builder setFloatLabelColor(int color) {
+            mFloatLabelColor = color;
+            return this;
+        }
+
+        /**
+         * @param color int color to use for the label and hint while there is a validation error
+         * @return this Builder
+         */
+        public Builder setErrorColor(int color) {
+            mErrorColor = color;
+            return this;
+        }
+
+        /**
+         * @param imeOptions int IME options for the EditText
+         * @return this Builder
+         */
+        public Builder setImeOptions(int imeOptions) {
+            mImeOptions = imeOptions;
+            return this;
+        }
+
+        /**
+         * @param inputType int input type for the EditText
+         * @return this Builder
+         */
+        public Builder setInputType(int inputType) {
+            mInputType = inputType;
+            return this;
+        }
+
+        /**
+         * @param id int ID of the View to focus when moving down
+         * @return this Builder
+         */
+        public Builder setNextFocusDownId(int id) {
+            mNextFocusDownId = id;
+            return this;
+        }
+
+        /**
+         * @param id int ID of the View to focus when moving forward
+         * @return this Builder
+         */
+        public Builder setNextFocusForwardId(int id) {
+            mNextFocusForwardId = id;
+            return this;
+        }
+
+        /**
+         * @param id int ID of the View to focus when moving left
+         * @return this Builder
+         */
+        public Builder setNextFocusLeftId(int id) {
+            mNextFocusLeftId = id;
+            return this;
+        }
+
+        /**
+         * @param id int ID of the View to focus when moving right
+         * @return this Builder
+         */
+        public Builder setNextFocusRightId(int id) {
+            mNextFocusRightId = id;
+            return this;
+        }
+
+        /**
+         * @param id int ID of the View to focus when moving up
+         * @return this Builder
+         */
+        public Builder setNextFocusUpId(int id) {
+            mNextFocusUpId = id;
+            return this;
+        }
+
+        /**
+         * @param flattenLabel boolean true to draw the label without a child TextView
+         * @return this Builder
+         */
+        public Builder setLabelFlattened(boolean flattenLabel) {
+            mFlattenLabel = flattenLabel;
+            return this;
+        }
+
+        /**
+         * @param inputMask String mask to format the text with; see {@link InputMask}
+         * @return this Builder
+         */
+        public Builder setInputMask(String inputMask) {
+            mInputMask = inputMask;
+            return this;
+        }
+
+        /**
+         * @param counterEnabled boolean true to show the length of the text at the end of the label row
+         * @return this Builder
+         */
+        public Builder setCounterEnabled(boolean counterEnabled) {
+            mCounterEnabled = counterEnabled;
+            return this;
+        }
+
+        /**
+         * @param counterMaxLength int maximum length shown by the counter or 0 for none
+         * @return this Builder
+         */
+        public Builder setCounterMaxLength(int counterMaxLength) {
+            mCounterMaxLength = counterMaxLength;
+            return this;
+        }
+
+        /**
+         * @param animationProfile int one of the FloatLabel ANIMATION_PROFILE constants
+         * @return this Builder
+         */
+        public Builder setAnimationProfile(int animationProfile) {
+            mAnimationProfile = animationProfile;
+            return this;
+        }
+
+        /**
+         * @param lazyLabel boolean true to create the label only once the text is first
+         *            nonempty; only applies to the default layout
+         * @return this Builder
+         */
+        public Builder setLazyLabel(boolean lazyLabel) {
+            mLazyLabel = lazyLabel;
+            return this;
+        }
+
+        /**
+         * @param displayMode boolean true to draw the text until the field is focused and only
+         *            then create the EditText; only applies to the default layout
+         * @return this Builder
+         */
+        public Builder setDisplayMode(boolean displayMode) {
+            mDisplayMode = displayMode;
+            return this;
+        }
+    }
+
+    public FloatLabel(Context context) {
+        this(context, null, 0);
+    }
+
+    public FloatLabel(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public FloatLabel(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+        init(context, attrs, defStyle);
+    }
+
+    /**
+     * Creates a FloatLabel from a Builder
+     *
+     * @param context Context to create the child views with
+     * @param builder Builder holding the values to apply
+     */
+    private FloatLabel(Context context, Builder builder) {
+        super(context);
+        init(context, builder);
+    }
+
+    @Override
+    public void addView(View child) {
+        if (mInitComplete) {
+            throw new UnsupportedOperationException("You cannot add child views to a FloatLabel");
+        } else {
+            super.addView(child);
+        }
+    }
+
+    @Override
+    public void addView(View child, int index) {
+        if (mInitComplete) {
+            throw new UnsupportedOperationException("You cannot add child views to a FloatLabel");
+        } else {
+            super.addView(child, index);
+        }
+    }
+
+    @Override
+    public void addView(View child, int index, android.view.ViewGroup.LayoutParams params) {
+        if (mInitComplete) {
+            throw new UnsupportedOperationException("You cannot add child views to a FloatLabel");
+        } else {
+            super.addView(child, index, params);
+        }
+    }
+
+    @Override
+    public void addView(View child, int width, int height) {
+        if (mInitComplete) {
+            throw new UnsupportedOperationException("You cannot add child views to a FloatLabel");
+        } else {
+            super.addView(child, width, height);
+        }
+    }
 
     @Override
     public void addView(View child, android.view.ViewGroup.LayoutParams params) {
@@ -169,21 +874,37 @@ public class FloatLabel extends FrameLayout {
     }
 
     /**
-     * Returns the EditText portion of this View
+     * Returns the EditText portion of this View. In display mode, this creates the EditText
+     * if it has not been created yet.
      * 
      * @return the EditText portion of this View
      */
     public EditText getEditText() {
-        return mEditText;
+        return ensureEditText();
     }
 
     /**
-     * Returns the label portion of this View
+     * Returns the label portion of this View.<br>
+     * <br>
+     * If the label is flattened, the returned TextView is not attached to the View
+     * hierarchy; it only holds the text, text appearance and animated properties that
+     * this FloatLabel uses to draw it. Call {@link #invalidate()} after changing its
+     * color or text appearance directly. In lazy label mode, this creates the label if
+     * it has not been created yet.
      *
      * @return the label portion of this View
      */
     public TextView getLabel() {
-        return mLabel;
+        return ensureLabel();
+    }
+
+    /**
+     * Returns true if the label is drawn by this View instead of being a child View
+     *
+     * @return true if the label is flattened
+     */
+    public boolean isLabelFlattened() {
+        return mLabelFlattened;
     }
 
     /**
@@ -205,8 +926,75 @@ public class FloatLabel extends FrameLayout {
      *            CharSequence to set as the label
      */
     public void setLabel(CharSequence hint) {
-        mEditText.setHint(hint);
-        mLabel.setText(hint);
+        applyHint(hint);
+        applyLabelText(hint);
+        if (mLabelFlattened && mLabel != null) {
+            if (mLabel.getLayoutParams().width != LayoutParams.MATCH_PARENT) {
+                requestLayout();
+            }
+            invalidate();
+        }
+    }
+
+    /**
+     * Formats the text to the given mask as it is typed. See {@link InputMask} for the mask
+     * syntax. Existing text is reformatted.
+     *
+     * @param mask String mask or null to remove the current mask
+     */
+    public void setInputMask(String mask) {
+        setInputMask(mask == null ? null : new InputMask(mask));
+    }
+
+    /**
+     * Formats the text with the given InputMask as it is typed. Existing text is reformatted.
+     *
+     * @param inputMask InputMask or null to remove the current mask
+     */
+    public void setInputMask(InputMask inputMask) {
+        ensureEditText();
+        applyInputMask(inputMask);
+        if (inputMask != null && mEditText.length() > 0) {
+            // Filters also run for setText
+            mEditText.setText(mEditText.getText().toString());
+        }
+    }
+
+    /**
+     * Returns the current InputMask
+     *
+     * @return InputMask or null
+     */
+    public InputMask getInputMask() {
+        for (InputFilter filter : ensureEditText().getFilters()) {
+            if (filter instanceof InputMask) {
+                return (InputMask) filter;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replaces any InputMask in the EditText's filters and TextWatchers, keeping the other
+     * filters
+     *
+     * @param inputMask InputMask or null to only remove the current one
+     */
+    private void applyInputMask(InputMask inputMask) {
+        final InputFilter[] filters = mEditText.getFilters();
+        final ArrayList<InputFilter> kept = new ArrayList<InputFilter>(filters.length + 1);
+        for (InputFilter filter : filters) {
+            if (filter instanceof InputMask) {
+                mEditText.removeTextChangedListener((InputMask) filter);
+            } else {
+                kept.add(filter);
+            }
+        }
+        if (inputMask != null) {
+            kept.add(inputMask);
+            mEditText.addTextChangedListener(inputMask);
+        }
+        mEditText.setFilters(kept.toArray(new InputFilter[kept.size()]));
     }
 
     /**
@@ -215,410 +1003,2171 @@ public class FloatLabel extends FrameLayout {
      * @param labelAnimator LabelAnimator to use; null causes use of the default LabelAnimator
      */
     public void setLabelAnimator(LabelAnimator labelAnimator) {
+        cancelLabelAnimation();
         if (labelAnimator == null) {
-            mLabelAnimator = new DefaultLabelAnimator();
+            mLabelAnimator = mDefaultLabelAnimator;
         } else {
             mLabelAnimator = labelAnimator;
         }
     }
 
     /**
-     * Sets the EditText's text with animation
+     * Sets whether the default LabelAnimator renders the label into a hardware layer while it
+     * animates. This has no effect on custom LabelAnimators or a flattened label.
+     *
+     * @param useHardwareLayer boolean true to use a hardware layer during label animations
+     */
+    public void setLabelAnimationHardwareLayerEnabled(boolean useHardwareLayer) {
+        mDefaultLabelAnimator.mUseHardwareLayer = useHardwareLayer;
+    }
+
+    /**
+     * Sets a listener that receives frame statistics for every label animation. Frames are
+     * tracked with Choreographer, so this has no effect before Jelly Bean.
+     *
+     * @param listener LabelAnimationStatsListener to notify; null stops tracking
+     */
+    public void setLabelAnimationStatsListener(LabelAnimationStatsListener listener) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            return;
+        }
+        if (mLabelAnimationMonitor != null) {
+            mLabelAnimationMonitor.stop();
+        }
+        mLabelAnimationMonitor = listener == null ? null : new LabelAnimationMonitor(this, listener);
+    }
+
+    /**
+     * Validates the text with the given Validator on a background thread after edits pause for
+     * 300ms. See {@link #setValidator(Validator, long, Executor)}.
+     *
+     * @param validator Validator to use; null stops validating and clears any error
+     */
+    public void setValidator(Validator validator) {
+        setValidator(validator, DEFAULT_VALIDATION_DELAY, AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    /**
+     * Validates the text with the given Validator after every edit.<br>
+     * <br>
+     * Rapid edits are coalesced: validation only starts once no edit has been made for the
+     * given delay, and it runs on the Executor with a snapshot of the text. A run for text that
+     * has since changed is skipped if it has not started and ignored if it has. When the
+     * Validator returns an error, the label shows the error message, even over empty text,
+     * and the label and hint use the floatLabelErrorColor until the text is valid again.
+     *
+     * @param validator Validator to use; null stops validating and clears any error
+     * @param delayMillis long milliseconds to wait after the last edit before validating
+     * @param executor Executor to run the Validator on
+     */
+    public void setValidator(Validator validator, long delayMillis, Executor executor) {
+        mValidationGeneration++;
+        removeCallbacks(mValidationStarter);
+        mValidator = validator;
+        mValidationDelay = delayMillis;
+        mValidationExecutor = executor;
+        if (validator == null) {
+            setError(null);
+        }
+    }
+
+    /**
+     * Validates the current text right away instead of waiting for the next edit
+     */
+    public void validate() {
+        if (mValidator != null) {
+            mValidationGeneration++;
+            removeCallbacks(mValidationStarter);
+            mValidationStarter.run();
+        }
+    }
+
+    /**
+     * Returns the error from the last validation
+     *
+     * @return error message or null if the text is valid or has not been validated
+     */
+    public CharSequence getError() {
+        return mError;
+    }
+
+    /**
+     * Observes the value on a background thread once edits pause for the given delay. See
+     * {@link #setValueObserver(ValueObserver, long, long, Executor)}.
+     *
+     * @param observer ValueObserver to notify; null stops observing
+     * @param debounceMillis long milliseconds to wait after the last edit before notifying
+     */
+    public void setValueObserver(ValueObserver observer, long debounceMillis) {
+        setValueObserver(observer, debounceMillis, 0, AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    /**
+     * Observes the value without a TextWatcher on the input path.<br>
+     * <br>
+     * Edits only note the time on the main thread. Once no edit has been made for the debounce
+     * delay, a snapshot of the text is handed to the Executor. With a throttle window, a burst
+     * of edits is delivered at least and at most once per window, so results keep up with
+     * continuous typing. If the observer is still busy when newer values arrive, only the
+     * latest is delivered next. Any value not yet delivered is delivered right away when the
+     * FloatLabel is detached, bound or unbound. Text set by {@link #bind(CharSequence, CharSequence, TextWatcher)} is not
+     * delivered.
+     *
+     * @param observer ValueObserver to notify; null stops observing
+     * @param debounceMillis long milliseconds to wait after the last edit before notifying
+     * @param throttleMillis long longest that continuous edits can hold back a value and the
+     *            shortest time between values, in milliseconds, or 0 for no limit
+     * @param executor Executor to notify the observer on
+     */
+    public void setValueObserver(ValueObserver observer, long debounceMillis, long throttleMillis,
+            Executor executor) {
+        removeCallbacks(mValueDeliverer);
+        if (mValueDelivery != null) {
+            mValueDelivery.cancel();
+        }
+        mValueDelivery = observer == null ? null : new ValueDelivery(observer, executor);
+        mValueDebounce = debounceMillis;
+        mValueThrottle = throttleMillis;
+        mFirstUndeliveredEdit = -1;
+    }
+
+    /**
+     * Schedules delivering the value to the ValueObserver after an edit
+     */
+    private void onValueEdited() {
+        if (mValueDelivery == null || mBinding) {
+            return;
+        }
+        if (mInBatch) {
+            // Delivered once when the batch ends
+            mValueEditedInBatch = true;
+            return;
+        }
+        final long now = SystemClock.uptimeMillis();
+        if (mFirstUndeliveredEdit < 0) {
+            mFirstUndeliveredEdit = now;
+        }
+        long due = now + mValueDebounce;
+        if (mValueThrottle > 0) {
+            due = Math.min(due, mFirstUndeliveredEdit + mValueThrottle);
+            due = Math.max(due, mLastValueDelivery + mValueThrottle);
+        }
+        removeCallbacks(mValueDeliverer);
+        postDelayed(mValueDeliverer, Math.max(0, due - now));
+    }
+
+    /**
+     * Delivers any value not yet delivered to the ValueObserver now
+     */
+    private void flushValue() {
+        removeCallbacks(mValueDeliverer);
+        mValueDeliverer.run();
+    }
+
+    /**
+     * Sets the color used for the label and hint while there is a validation error
+     *
+     * @param color int color to use
+     */
+    public void setErrorColor(int color) {
+        mErrorColor = color;
+        if (mError != null) {
+            applyErrorColors();
+        }
+    }
+
+    /**
+     * Shows or clears a validation error on the label. An error message shows the label even
+     * when the text is empty. In display mode, the hint is drawn in the error color rather
+     * than creating the EditText.
+     *
+     * @param error CharSequence error message or null to clear the error
+     */
+    private void setError(CharSequence error) {
+        if (error == null) {
+            if (mError != null) {
+                mError = null;
+                mLabel.setTextColor(mLabelColors);
+                if (mEditText != null) {
+                    mEditText.setHintTextColor(mHintColors);
+                }
+                mLabel.setText(mLabelText);
+                mLabelText = null;
+                updateLabelShowing();
+                invalidate();
+            }
+            return;
+        }
+
+        if (mError == null) {
+            ensureLabel();
+            mLabelText = mLabel.getText();
+            mLabelColors = mLabel.getTextColors();
+            if (mEditText != null) {
+                mHintColors = mEditText.getHintTextColors();
+            }
+        }
+        mError = error;
+        applyErrorColors();
+        mLabel.setText(error.length() == 0 ? mLabelText : error);
+        updateLabelShowing();
+        invalidate();
+    }
+
+    private void applyErrorColors() {
+        mLabel.setTextColor(mErrorColor);
+        if (mEditText != null) {
+            mEditText.setHintTextColor(mErrorColor);
+        }
+    }
+
+    /**
+     * Animates the label in or out after the error changes, outside of a batch
+     */
+    private void updateLabelShowing() {
+        if (!mInBatch) {
+            setLabelShowing(isLabelNeeded(getCurrentText()), true);
+        }
+    }
+
+    /**
+     * Returns true if the label should be showing for the given text: when there is text to
+     * label or an error message to show on it
+     *
+     * @param text CharSequence current text
+     * @return true if the label is needed
+     */
+    private boolean isLabelNeeded(CharSequence text) {
+        return text.length() != 0 || (mError != null && mError.length() != 0);
+    }
+
+    /**
+     * Restyles this FloatLabel for a theme without recreating it, such as when switching
+     * between a light and a dark theme. The theme is applied on top of the current one.
+     *
+     * @param themeResId int resource ID of the theme
+     * @see #applyStyle(Context, int)
+     */
+    public void applyTheme(int themeResId) {
+        applyStyle(new ContextThemeWrapper(getContext(), themeResId), 0);
+    }
+
+    /**
+     * Restyles this FloatLabel in place from the given Context's theme and an optional
+     * FloatLabel style. The EditText gets the text appearance, text colors and background of
+     * the theme's EditText style, and the default label gets the theme's small text
+     * appearance. Labels from a custom layout keep their text appearance. Colors set with
+     * textColorHint and floatLabelColor, in the attributes or the style, are kept over the
+     * theme's.<br>
+     * <br>
+     * The text, the label and whether it is showing are unchanged, and no Views are recreated.
+     * Call this after changing the Activity's theme in place with setTheme, so that
+     * FloatLabels inflated afterward do not reuse attributes resolved with the old theme.
+     *
+     * @param context Context whose theme to use
+     * @param styleResId int resource ID of a style with FloatLabel attributes or 0 for none
+     */
+    public void applyStyle(Context context, int styleResId) {
+        // A theme change may have been made in place, so FloatLabels inflated from now on
+        // must not reuse attributes resolved with the old theme
+        StyledAttributesCache.invalidate(getContext().getTheme());
+        if (styleResId != 0) {
+            final TypedArray a = context.obtainStyledAttributes(null, R.styleable.FloatLabel, 0, styleResId);
+            try {
+                if (a.hasValue(R.styleable.FloatLabel_android_textColorHint)) {
+                    mCustomHintColors = a.getColorStateList(R.styleable.FloatLabel_android_textColorHint);
+                }
+                if (a.hasValue(R.styleable.FloatLabel_floatLabelColor)) {
+                    mFloatLabelColor = a.getColor(R.styleable.FloatLabel_floatLabelColor, 0);
+                }
+                if (a.hasValue(R.styleable.FloatLabel_floatLabelErrorColor)) {
+                    mErrorColor = a.getColor(R.styleable.FloatLabel_floatLabelErrorColor, mErrorColor);
+                }
+            } finally {
+                a.recycle();
+            }
+        }
+        mStyleContext = context;
+
+        if (mError != null) {
+            // Restyle from the colors shown without the error; a custom label or a theme
+            // without a hint color leaves them as they are, which must not be the error color
+            mLabel.setTextColor(mLabelColors);
+            if (mEditText != null) {
+                mEditText.setHintTextColor(mHintColors);
+            }
+        }
+        if (mEditText != null) {
+            restyleEditText(context);
+        } else {
+            // Display mode draws the text itself until the EditText is created
+            initDisplayMode(context, mCustomHintColors);
+        }
+        if (mLabel != null) {
+            restyleLabel(context);
+        } else {
+            mLazyLabelPaint = createLabelPaint(context);
+        }
+        if (mCounterPaint != null) {
+            mCounterPaint.set(mLabel.getPaint());
+            mCounterPaint.setTextAlign(Paint.Align.RIGHT);
+        }
+        if (mError != null) {
+            // The restyled colors are the ones to restore once the error is cleared
+            mLabelColors = mLabel.getTextColors();
+            if (mEditText != null) {
+                mHintColors = mEditText.getHintTextColors();
+            }
+            applyErrorColors();
+        }
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * Applies the theme's EditText style to the EditText
+     *
+     * @param context Context whose theme to use
+     */
+    @SuppressWarnings("deprecation")
+    private void restyleEditText(Context context) {
+        final EditText editText = mEditText;
+        final TypedArray a = context.obtainStyledAttributes(null, EDIT_TEXT_STYLE_ATTRS,
+                android.R.attr.editTextStyle, 0);
+        try {
+            final int appearance = a.getResourceId(0, 0);
+            if (appearance != 0) {
+                editText.setTextAppearance(context, appearance);
+            }
+            final ColorStateList textColors = a.getColorStateList(1);
+            if (textColors != null) {
+                editText.setTextColor(textColors);
+            }
+            final ColorStateList hintColors = mCustomHintColors != null ? mCustomHintColors : a.getColorStateList(2);
+            if (hintColors != null) {
+                editText.setHintTextColor(hintColors);
+            }
+            if (a.hasValue(3)) {
+                // Resets the padding to the new background's
+                editText.setBackgroundDrawable(a.getDrawable(3));
+            }
+        } finally {
+            a.recycle();
+        }
+    }
+
+    /**
+     * Applies the theme's label text appearance, for the default label, and the label color
+     *
+     * @param context Context whose theme to use
+     */
+    private void restyleLabel(Context context) {
+        final TextView label = mLabel;
+        if (mSingleLineLabel) {
+            final TypedValue value = new TypedValue();
+            if (context.getTheme().resolveAttribute(android.R.attr.textAppearanceSmall, value, true)) {
+                label.setTextAppearance(context, value.resourceId);
+            }
+        }
+        if (mFloatLabelColor != 0) {
+            label.setTextColor(mFloatLabelColor);
+        }
+        if (mLabelFlattened) {
+            // Looked up again with the new text size and typeface
+            mFlatLabelLayout = null;
+        }
+    }
+
+    /**
+     * Shows the length of the text at the end of the label row. The length is counted in
+     * graphemes, so an accented letter or an emoji with a skin tone counts as one character
+     * even when it is made of several code points. Before Android 7.0, the platform splits
+     * flags and emoji joined with zero-width joiners, so those count as several characters
+     * there. It is kept up to date from each edit rather than by recounting the
+     * whole text.
+     *
+     * @param enabled boolean true to show the counter
+     */
+    public void setCounterEnabled(boolean enabled) {
+        if (enabled == (mLengthCounter != null)) {
+            return;
+        }
+        if (enabled) {
+            mLengthCounter = new LengthCounter();
+            mLengthCounter.reset(getCurrentText());
+            // The counter is drawn in the label's row
+            mCounterPaint = new TextPaint(ensureLabel().getPaint());
+            mCounterPaint.setTextAlign(Paint.Align.RIGHT);
+        } else {
+            mLengthCounter = null;
+            mCounterPaint = null;
+        }
+        mCounterShown = -1;
+        invalidate();
+    }
+
+    /**
+     * Returns true if the counter is shown
+     *
+     * @return boolean true if the counter is enabled
+     */
+    public boolean isCounterEnabled() {
+        return mLengthCounter != null;
+    }
+
+    /**
+     * Sets the maximum length shown by the counter. The counter uses the floatLabelErrorColor
+     * when the text is longer. This does not limit the text; use an InputFilter for that.
+     *
+     * @param maxLength int maximum length or 0 for none
+     */
+    public void setCounterMaxLength(int maxLength) {
+        mCounterMaxLength = maxLength;
+        mCounterShown = -1;
+        invalidate();
+    }
+
+    /**
+     * Returns the maximum length shown by the counter
+     *
+     * @return int maximum length or 0 for none
+     */
+    public int getCounterMaxLength() {
+        return mCounterMaxLength;
+    }
+
+    /**
+     * Returns the length of the text in graphemes (user-perceived characters)
+     *
+     * @return int number of graphemes
+     * @throws IllegalStateException if the counter is not enabled
+     */
+    public int getCharacterCount() {
+        if (mLengthCounter == null) {
+            throw new IllegalStateException("The counter is not enabled");
+        }
+        return mLengthCounter.getGraphemeCount();
+    }
+
+    /**
+     * Returns the length of the text in Unicode code points
+     *
+     * @return int number of code points
+     * @throws IllegalStateException if the counter is not enabled
+     */
+    public int getCodePointCount() {
+        if (mLengthCounter == null) {
+            throw new IllegalStateException("The counter is not enabled");
+        }
+        return mLengthCounter.getCodePointCount();
+    }
+
+    /**
+     * Saves the text to a DraftStore as it is edited and restores any saved draft.<br>
+     * <br>
+     * The draft is loaded in the background and set without animating the label. It is not
+     * restored if the text is changed before it loads. Keys must be stable across process
+     * restarts and unique within the DraftStore, so View IDs are usually a poor choice.
+     *
+     * @param store DraftStore to use or null to stop saving drafts
+     * @param key String key for this FloatLabel's draft
+     */
+    public void setDraftKey(final DraftStore store, final String key) {
+        if (store != null && key == null) {
+            throw new IllegalArgumentException("A draft key is required");
+        }
+        mDraftStore = store;
+        mDraftKey = key;
+        if (store == null) {
+            return;
+        }
+
+        final int textGeneration = mTextGeneration;
+        store.load(key, new DraftStore.OnDraftLoadedListener() {
+            @Override
+            public void onDraftLoaded(String loadedKey, String value) {
+                if (value == null || mDraftStore != store || !loadedKey.equals(mDraftKey)
+                        || mTextGeneration != textGeneration) {
+                    return;
+                }
+                mRestoringDraft = true;
+                try {
+                    setTextWithoutAnimation(value);
+                } finally {
+                    mRestoringDraft = false;
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the key of this FloatLabel's draft
+     *
+     * @return String key or null if drafts are not saved
+     */
+    public String getDraftKey() {
+        return mDraftKey;
+    }
+
+    /**
+     * Sets when the label is animated. With {@link #ANIMATION_PROFILE_AUTO}, the label is not
+     * animated on low-RAM devices. Regardless of the profile, the label is never animated
+     * while this View is detached or hidden or while system animations are turned off.
+     *
+     * @param profile int ANIMATION_PROFILE_FULL, ANIMATION_PROFILE_AUTO or ANIMATION_PROFILE_NONE
+     */
+    public void setAnimationProfile(int profile) {
+        if (profile != ANIMATION_PROFILE_FULL && profile != ANIMATION_PROFILE_AUTO
+                && profile != ANIMATION_PROFILE_NONE) {
+            throw new IllegalArgumentException("Unknown animation profile: " + profile);
+        }
+        mAnimationProfile = profile;
+    }
+
+    /**
+     * Returns the animation profile
+     *
+     * @return int ANIMATION_PROFILE_FULL, ANIMATION_PROFILE_AUTO or ANIMATION_PROFILE_NONE
+     */
+    public int getAnimationProfile() {
+        return mAnimationProfile;
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        // Read once here rather than through a ContentResolver on every label change
+        mAnimatorDurationScale = getAnimatorDurationScale();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        removeCallbacks(mValidationStarter);
+        // Detached Views get no callbacks, so the last value is delivered now
+        flushValue();
+        if (mLabelAnimationMonitor != null) {
+            mLabelAnimationMonitor.stop();
+        }
+    }
+
+    /**
+     * Sets the EditText's text with animation
+     *
+     * @param resid int String resource ID
+     */
+    public void setText(int resid) {
+        if (mEditText == null) {
+            setDisplayText(getContext().getText(resid));
+            return;
+        }
+        mEditText.setText(resid);
+    }
+
+    /**
+     * Sets the EditText's text with label animation
+     *
+     * @param text char[] text
+     * @param start int start of char array to use
+     * @param len int characters to use from the array
+     */
+    public void setText(char[] text, int start, int len) {
+        if (mEditText == null) {
+            setDisplayText(new String(text, start, len));
+            return;
+        }
+        mEditText.setText(text, start, len);
+    }
+
+    /**
+     * Sets the EditText's text with label animation
+     *
+     * @param resid int String resource ID
+     * @param type TextView.BufferType
+     */
+    public void setText(int resid, TextView.BufferType type) {
+        if (mEditText == null) {
+            setDisplayText(getContext().getText(resid));
+            return;
+        }
+        mEditText.setText(resid, type);
+    }
+
+    /**
+     * Sets the EditText's text with label animation
+     *
+     * @param text CharSequence to set
+     */
+    public void setText(CharSequence text) {
+        if (mEditText == null) {
+            setDisplayText(text);
+            return;
+        }
+        mEditText.setText(text);
+    }
+
+    /**
+     * Sets the EditText's text with label animation
+     *
+     * @param text CharSequence to set
+     * @param type TextView.BufferType
+     */
+    public void setText(CharSequence text, TextView.BufferType type) {
+        if (mEditText == null) {
+            setDisplayText(text);
+            return;
+        }
+        mEditText.setText(text, type);
+    }
+
+    /**
+     * Sets the EditText's text without animating the label
+     *
+     * @param resid int String resource ID
+     */
+    public void setTextWithoutAnimation(int resid) {
+        if (mEditText == null) {
+            setDisplayText(getContext().getText(resid));
+            return;
+        }
+        mSkipAnimation = true;
+        mEditText.setText(resid);
+    }
+
+    /**
+     * Sets the EditText's text without animating the label
+     *
+     * @param text char[] text
+     * @param start int start of char array to use
+     * @param len int characters to use from the array
+     */
+    public void setTextWithoutAnimation(char[] text, int start, int len) {
+        if (mEditText == null) {
+            setDisplayText(new String(text, start, len));
+            return;
+        }
+        mSkipAnimation = true;
+        mEditText.setText(text, start, len);
+    }
+
+    /**
+     * Sets the EditText's text without animating the label
+     *
+     * @param resid int String resource ID
+     * @param type TextView.BufferType
+     */
+    public void setTextWithoutAnimation(int resid, TextView.BufferType type) {
+        if (mEditText == null) {
+            setDisplayText(getContext().getText(resid));
+            return;
+        }
+        mSkipAnimation = true;
+        mEditText.setText(resid, type);
+    }
+
+    /**
+     * Sets the EditText's text without animating the label
+     *
+     * @param text CharSequence to set
+     */
+    public void setTextWithoutAnimation(CharSequence text) {
+        if (mEditText == null) {
+            setDisplayText(text);
+            return;
+        }
+        mSkipAnimation = true;
+        mEditText.setText(text);
+    }
+
+    /**
+     * Sets the EditText's text without animating the label
+     *
+     * @param text CharSequence to set
+     * @param type TextView.BufferType
+     */
+    public void setTextWithoutAnimation(CharSequence text, TextView.BufferType type) {
+        if (mEditText == null) {
+            setDisplayText(text);
+            return;
+        }
+        mSkipAnimation = true;
+        mEditText.setText(text, type);
+    }
+
+    /**
+     * Binds new values to this FloatLabel when it is reused in a list, such as from a
+     * RecyclerView or ListView adapter. Any running label animation is cancelled, the label is
+     * shown or hidden without animation and the text is replaced in the existing Editable.<br>
+     * <br>
+     * Instead of adding and removing TextWatchers on the EditText, pass the watcher for the
+     * bound item here. It receives every change after the bind but not the bind itself.
+     *
+     * @param label CharSequence to use as the label and hint
+     * @param text CharSequence to show in the EditText
+     * @param textWatcher TextWatcher to notify of changes to the text, or null
+     */
+    public void bind(CharSequence label, CharSequence text, TextWatcher textWatcher) {
+        // Any value edited for the previous item belongs to it
+        flushValue();
+        mBinding = true;
+        mBoundTextWatcher = textWatcher;
+        cancelLabelAnimation();
+        if (!TextUtils.equals(label, getHint())) {
+            setLabel(label);
+        }
+
+        if (mEditText == null) {
+            setDisplayText(text);
+            mBinding = false;
+            return;
+        }
+        final Editable editable = mEditText.getText();
+        if (text == null) {
+            text = "";
+        }
+        if (!TextUtils.equals(text, editable)) {
+            if (mEditText.hasFocus()) {
+                // An attached input method needs the EditText to restart input
+                setTextWithoutAnimation(text);
+            } else {
+                mSkipAnimation = true;
+                editable.replace(0, editable.length(), text);
+            }
+        }
+        mSkipAnimation = false;
+        setLabelShowing(isLabelNeeded(editable), false);
+        mBinding = false;
+    }
+
+    /**
+     * Releases the TextWatcher passed to {@link #bind(CharSequence, CharSequence, TextWatcher)}
+     * and cancels any running label animation, such as when a list row is recycled
+     */
+    public void unbind() {
+        mBoundTextWatcher = null;
+        cancelLabelAnimation();
+        flushValue();
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        if (mLabelFlattened && mLabel != null) {
+            // Draw the label first so that it sits beneath the EditText like a child would
+            drawFlatLabel(canvas);
+        }
+        if (mEditText == null) {
+            drawDisplayText(canvas);
+        }
+        super.dispatchDraw(canvas);
+        if (mLengthCounter != null) {
+            drawCounter(canvas);
+        }
+    }
+
+    /**
+     * Draws the counter right aligned on the label's first baseline
+     */
+    private void drawCounter(Canvas canvas) {
+        final int count = mLengthCounter.getGraphemeCount();
+        final int max = mCounterMaxLength;
+        final char[] chars = mCounterChars;
+        int start = chars.length;
+        if (max > 0) {
+            start = writeDigits(chars, start, max);
+            chars[--start] = '/';
+        }
+        start = writeDigits(chars, start, count);
+
+        final TextPaint paint = mCounterPaint;
+        paint.setColor(max > 0 && count > max ? mErrorColor : mLabel.getCurrentTextColor());
+        paint.getFontMetricsInt(mFontMetrics);
+        final float x = mLabel.getRight() - mLabel.getPaddingRight();
+        final float y = mLabel.getTop() + mLabel.getPaddingTop() - mFontMetrics.top;
+        canvas.drawText(chars, start, chars.length - start, x, y, paint);
+        mCounterShown = count;
+    }
+
+    /**
+     * Writes the digits of a non-negative int so that they end at the given index
+     *
+     * @return int index of the first digit
+     */
+    private static int writeDigits(char[] chars, int end, int value) {
+        do {
+            chars[--end] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        return end;
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        final int childLeft = getPaddingLeft();
+        final int childRight = right - left - getPaddingRight();
+        final int childTop = getPaddingTop();
+        final int layoutDirection = resolveLayoutDirection(this);
+
+        if (mLabel != null) {
+            layoutChild(mLabel, getLabelMeasuredWidth(), getLabelMeasuredHeight(), childLeft, childTop, childRight, layoutDirection);
+        }
+        if (mEditText != null) {
+            layoutChild(mEditText, mEditText.getMeasuredWidth(), mEditText.getMeasuredHeight(), childLeft, childTop + getLabelMeasuredHeight(), childRight, layoutDirection);
+        }
+    }
+
+    /**
+     * Returns the layout direction of a View, which is always LTR before API 17
+     *
+     * @param view View to check
+     * @return int LAYOUT_DIRECTION_LTR or LAYOUT_DIRECTION_RTL
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+    /*package*/ static int resolveLayoutDirection(View view) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            return LAYOUT_DIRECTION_LTR;
+        }
+        return view.getLayoutDirection();
+    }
+
+    /**
+     * Lays out a child with FrameLayout.LayoutParams at the top of the given bounds, honoring
+     * its horizontal gravity and margins
+     *
+     * @param child View to lay out
+     * @param width int measured width of the child
+     * @param height int measured height of the child
+     * @param parentLeft int left edge available to the child
+     * @param parentTop int top edge available to the child
+     * @param parentRight int right edge available to the child
+     * @param layoutDirection int layout direction of the parent
+     */
+    /*package*/ static void layoutChild(View child, int width, int height, int parentLeft, int parentTop,
+            int parentRight, int layoutDirection) {
+        if (child.getVisibility() != GONE) {
+            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+
+            int childLeft;
+            final int childTop = parentTop + lp.topMargin;
+
+            int gravity = lp.gravity;
+            if (gravity == -1) {
+                gravity = Gravity.TOP | Gravity.START;
+            }
+
+            final int absoluteGravity = Gravity.getAbsoluteGravity(gravity, layoutDirection);
+
+            switch (absoluteGravity & Gravity.HORIZONTAL_GRAVITY_MASK) {
+                case Gravity.CENTER_HORIZONTAL:
+                    childLeft = parentLeft + (parentRight - parentLeft - width) / 2 + lp.leftMargin - lp.rightMargin;
+                    break;
+                case Gravity.END:
+                    childLeft = parentRight - width - lp.rightMargin;
+                    break;
+                case Gravity.START:
+                default:
+                    childLeft = parentLeft + lp.leftMargin;
+            }
+
+            child.layout(childLeft, childTop, childLeft + width, childTop + height);
+        }
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        // Restore any state that's been pending before measuring
+        if (mSavedState != null) {
+            final SavedState savedState = mSavedState;
+            mSavedState = null;
+
+            // The label text comes from the hint, so only its visibility needs restoring and
+            // restoring the EditText's text should not animate it
+            if (savedState.mEditTextState != null) {
+                // Edits made before the state was saved need the EditText even in display mode
+                ensureEditText();
+                mSkipAnimation = true;
+                mEditText.onRestoreInstanceState(savedState.mEditTextState);
+                mSkipAnimation = false;
+            } else {
+                setTextWithoutAnimation(savedState.mDisplayText);
+            }
+            setLabelShowing(savedState.mLabelShowing, false);
+            if (savedState.mFocused) {
+                mEditText.requestFocus();
+            }
+        }
+
+        if (mEditText == null) {
+            measureDisplayText(widthMeasureSpec);
+        } else {
+            measureChild(mEditText, widthMeasureSpec, heightMeasureSpec);
+        }
+        if (mLabelFlattened || mLabel == null) {
+            computeSingleLineLabelSize(widthMeasureSpec);
+        } else if (mSingleLineLabel && isLabelPlainSingleLine()) {
+            computeSingleLineLabelSize(widthMeasureSpec);
+            mLabel.measure(MeasureSpec.makeMeasureSpec(mLabelWidth, MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(mLabelHeight, MeasureSpec.EXACTLY));
+        } else {
+            measureChild(mLabel, widthMeasureSpec, heightMeasureSpec);
+        }
+        setMeasuredDimension(measureWidth(widthMeasureSpec), measureHeight(heightMeasureSpec));
+        mHasMeasured = true;
+    }
+
+    @Override
+    public void requestLayout() {
+        // Children request layout through this method too, so any change to them lands here
+        if (mInBatch) {
+            // Requested once when the batch ends
+            mLayoutRequestedInBatch = true;
+            return;
+        }
+        super.requestLayout();
+    }
+
+    /**
+     * Starts deferring label updates, layout requests, validation, value delivery and draft
+     * saving until {@link #endBatch()}
+     */
+    /*package*/ void beginBatch() {
+        mInBatch = true;
+    }
+
+    /**
+     * Applies the final label state without animation and requests layout once if any
+     * change during the batch needed it. If the text changed, the final text is validated,
+     * delivered to the ValueObserver and saved as a draft once, as if it had been typed.
+     */
+    /*package*/ void endBatch() {
+        if (!mInBatch) {
+            return;
+        }
+        mInBatch = false;
+        setLabelShowing(isLabelNeeded(getCurrentText()), false);
+        if (mLayoutRequestedInBatch) {
+            mLayoutRequestedInBatch = false;
+            requestLayout();
+        }
+        if (mValidationNeededInBatch) {
+            mValidationNeededInBatch = false;
+            scheduleValidation();
+        }
+        if (mValueEditedInBatch) {
+            mValueEditedInBatch = false;
+            onValueEdited();
+        }
+        if (mDraftEditedInBatch) {
+            mDraftEditedInBatch = false;
+            if (mDraftStore != null) {
+                mDraftStore.onTextChanged(mDraftKey, getCurrentText());
+            }
+        }
+    }
+
+    /**
+     * Validates the text once edits have paused, or once the batch ends during a batch
+     */
+    private void scheduleValidation() {
+        if (mValidator == null) {
+            return;
+        }
+        // Results for earlier text are dropped even while validation waits for the batch
+        mValidationGeneration++;
+        removeCallbacks(mValidationStarter);
+        if (mInBatch) {
+            mValidationNeededInBatch = true;
+        } else {
+            postDelayed(mValidationStarter, mValidationDelay);
+        }
+    }
+
+    @Override
+    protected void dispatchSaveInstanceState(SparseArray<Parcelable> container) {
+        // The EditText's state is part of ours; saving the children by ID would store it twice
+        // and having more than one FloatLabel in an Activity or Fragment means you have
+        // multiple views of the same ID
+        dispatchFreezeSelfOnly(container);
+    }
+
+    @Override
+    protected void dispatchRestoreInstanceState(SparseArray<Parcelable> container) {
+        dispatchThawSelfOnly(container);
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+
+        // Save our state for the next measure pass so it is applied once the rest of the
+        // hierarchy has been restored
+        final SavedState savedState = (SavedState) state;
+        mSavedState = savedState;
+        super.onRestoreInstanceState(savedState.getSuperState());
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        final SavedState savedState = new SavedState(super.onSaveInstanceState());
+        if (mEditText == null) {
+            savedState.mDisplayText = mDisplayText;
+        } else {
+            savedState.mEditTextState = mEditText.onSaveInstanceState();
+            savedState.mFocused = mEditText.isFocused();
+        }
+        savedState.mLabelShowing = mLabelShowing;
+        return savedState;
+    }
+
+    private int measureHeight(int heightMeasureSpec) {
+        int specMode = MeasureSpec.getMode(heightMeasureSpec);
+        int specSize = MeasureSpec.getSize(heightMeasureSpec);
+
+        int result = 0;
+        if (specMode == MeasureSpec.EXACTLY) {
+            result = specSize;
+        } else {
+            result = getEditTextMeasuredHeight() + getLabelMeasuredHeight();
+            result += getPaddingTop() + getPaddingBottom();
+            result = Math.max(result, getSuggestedMinimumHeight());
+
+            if (specMode == MeasureSpec.AT_MOST) {
+                result = Math.min(result, specSize);
+            }
+        }
+
+        return result;
+    }
+
+    private int measureWidth(int widthMeasureSpec) {
+        int specMode = MeasureSpec.getMode(widthMeasureSpec);
+        int specSize = MeasureSpec.getSize(widthMeasureSpec);
+
+        int result = 0;
+        if (specMode == MeasureSpec.EXACTLY) {
+            result = specSize;
+        } else {
+            result = Math.max(getEditTextMeasuredWidth(), getLabelMeasuredWidth());
+            result = Math.max(result, getSuggestedMinimumWidth());
+            result += getPaddingLeft() + getPaddingRight();
+            if (specMode == MeasureSpec.AT_MOST) {
+                result = Math.min(result, specSize);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the hint, which is the label text
+     */
+    private CharSequence getHint() {
+        return mEditText == null ? mDisplayHint : mEditText.getHint();
+    }
+
+    /**
+     * Sets the hint on the EditText or on the text standing in for it
+     */
+    private void applyHint(CharSequence hint) {
+        if (mEditText == null) {
+            mDisplayHint = hint;
+            invalidate();
+        } else {
+            mEditText.setHint(hint);
+        }
+    }
+
+    /**
+     * Sets the label text. While an error is showing, the text is kept for when the error is
+     * cleared and the error stays on the label.
+     *
+     * @param hint CharSequence to show as the label
+     */
+    private void applyLabelText(CharSequence hint) {
+        if (mLabel == null) {
+            return;
+        }
+        if (mError != null) {
+            mLabelText = hint;
+            if (mError.length() != 0) {
+                return;
+            }
+        }
+        mLabel.setText(hint);
+    }
+
+    /**
+     * Returns the text of the EditText or the text shown in its place in display mode
+     */
+    private CharSequence getCurrentText() {
+        return mEditText == null ? mDisplayText : mEditText.getText();
+    }
+
+    /**
+     * Sets the text shown in display mode. The label is shown or hidden without animation.
+     *
+     * @param text CharSequence to show
+     */
+    private void setDisplayText(CharSequence text) {
+        mDisplayText = text == null ? "" : text;
+        mTextGeneration++;
+        if (mLengthCounter != null) {
+            mLengthCounter.reset(mDisplayText);
+        }
+        if (!mInBatch) {
+            setLabelShowing(isLabelNeeded(mDisplayText), false);
+        }
+        onValueEdited();
+        final ViewGroup.LayoutParams lp = getLayoutParams();
+        if (lp != null && lp.width == ViewGroup.LayoutParams.WRAP_CONTENT) {
+            requestLayout();
+        }
+        invalidate();
+    }
+
+    /**
+     * Measures the single line of text that stands in for the EditText in display mode
+     *
+     * @param widthMeasureSpec int width MeasureSpec given to this View
+     */
+    private void measureDisplayText(int widthMeasureSpec) {
+        final int horizontalPadding = mDisplayPadding.left + mDisplayPadding.right;
+        if (MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.UNSPECIFIED) {
+            final CharSequence text = mDisplayText.length() == 0 ? mDisplayHint : mDisplayText;
+            final float textWidth = text == null ? 0 : Layout.getDesiredWidth(text, mDisplayPaint);
+            mDisplayWidth = (int) Math.ceil(textWidth) + horizontalPadding;
+        } else {
+            mDisplayWidth = Math.max(0, MeasureSpec.getSize(widthMeasureSpec) - getPaddingLeft() - getPaddingRight());
+        }
+        mDisplayPaint.getFontMetricsInt(mFontMetrics);
+        mDisplayHeight = mDisplayPadding.top + mFontMetrics.bottom - mFontMetrics.top + mDisplayPadding.bottom;
+    }
+
+    /**
+     * Draws the text, or the hint if it is empty, where the EditText would draw it
+     */
+    private void drawDisplayText(Canvas canvas) {
+        final boolean empty = mDisplayText.length() == 0;
+        final CharSequence text = empty ? mDisplayHint : mDisplayText;
+        if (text == null || text.length() == 0) {
+            return;
+        }
+        mDisplayPaint.setColor(!empty ? mDisplayTextColor : mError != null ? mErrorColor : mDisplayHintColor);
+        mDisplayPaint.getFontMetricsInt(mFontMetrics);
+        final int left = getPaddingLeft() + mDisplayPadding.left;
+        final int right = getPaddingLeft() + mDisplayWidth - mDisplayPadding.right;
+        final int top = getPaddingTop() + getLabelMeasuredHeight() + mDisplayTopMargin + mDisplayPadding.top;
+
+        final int saveCount = canvas.save();
+        canvas.clipRect(left, top, right, top + mFontMetrics.bottom - mFontMetrics.top);
+        canvas.drawText(text, 0, text.length(), left, top - mFontMetrics.top, mDisplayPaint);
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * Creates and attaches the EditText if this FloatLabel is in display mode. The EditText
+     * gets the values from the Builder or attributes along with the current text and hint.
+     *
+     * @return the EditText
+     */
+    private EditText ensureEditText() {
+        if (mEditText != null) {
+            return mEditText;
+        }
+        final EditText editText = createDefaultEditText(getContext());
+        mEditText = editText;
+        applyEditTextValues(mDisplayBuilder);
+        if (mStyleContext != null) {
+            restyleEditText(mStyleContext);
+        }
+        editText.setHint(mDisplayHint);
+        if (mError != null) {
+            // The error was drawn on the display hint until now
+            mHintColors = editText.getHintTextColors();
+            editText.setHintTextColor(mErrorColor);
+        }
+        editText.setText(mDisplayText);
+        editText.addTextChangedListener(new EditTextWatcher());
+        mDisplayBuilder = null;
+        mDisplayText = null;
+        mDisplayHint = null;
+        mDisplayPaint = null;
+
+        addViewInLayout(editText, -1, editText.getLayoutParams(), true);
+        if (isFocused()) {
+            // Move focus first; making a focused View unfocusable clears its focus, which the
+            // root then gives to the first focusable View, such as another display-mode field
+            editText.requestFocus();
+        }
+        setFocusable(false);
+        setFocusableInTouchMode(false);
+        requestLayout();
+        invalidate();
+        return editText;
+    }
+
+    @Override
+    protected void onFocusChanged(boolean gainFocus, int direction, Rect previouslyFocusedRect) {
+        super.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+        if (gainFocus && mEditText == null) {
+            // Hand focus over to the real EditText and bring up the keyboard for it
+            final EditText editText = ensureEditText();
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    final InputMethodManager imm = (InputMethodManager) getContext()
+                            .getSystemService(Context.INPUT_METHOD_SERVICE);
+                    imm.showSoftInput(editText, InputMethodManager.SHOW_IMPLICIT);
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the measured height of the EditText or of the text standing in for it
+     */
+    private int getEditTextMeasuredHeight() {
+        return mEditText == null ? mDisplayHeight : mEditText.getMeasuredHeight();
+    }
+
+    /**
+     * Returns the measured width of the EditText or of the text standing in for it
+     */
+    private int getEditTextMeasuredWidth() {
+        return mEditText == null ? mDisplayWidth : mEditText.getMeasuredWidth();
+    }
+
+    /**
+     * Returns the measured height of the label, whether it is a child or flattened
+     */
+    private int getLabelMeasuredHeight() {
+        return mLabelFlattened || mLabel == null ? mLabelHeight : mLabel.getMeasuredHeight();
+    }
+
+    /**
+     * Returns the measured width of the label, whether it is a child or flattened
+     */
+    private int getLabelMeasuredWidth() {
+        return mLabelFlattened || mLabel == null ? mLabelWidth : mLabel.getMeasuredWidth();
+    }
+
+    /**
+     * Returns the height of a single line of label text from its font metrics
+     */
+    private int getLabelLineHeight() {
+        getLabelPaint().getFontMetricsInt(mFontMetrics);
+        return mFontMetrics.bottom - mFontMetrics.top;
+    }
+
+    /**
+     * Computes the size of a single line label without measuring the label TextView; its
+     * height comes straight from the font metrics.
+     *
+     * @param widthMeasureSpec int width MeasureSpec given to this View
+     */
+    private void computeSingleLineLabelSize(int widthMeasureSpec) {
+        // A label that has not been created yet is the default label: no padding or margins
+        final TextView label = mLabel;
+        final LayoutParams lp = label == null ? null : (LayoutParams) label.getLayoutParams();
+        final int horizontalPadding = label == null ? 0 : label.getPaddingLeft() + label.getPaddingRight();
+        final int horizontalMargins = lp == null ? 0 : lp.leftMargin + lp.rightMargin;
+        final int specMode = MeasureSpec.getMode(widthMeasureSpec);
+        final int available = Math.max(0, MeasureSpec.getSize(widthMeasureSpec) - getPaddingLeft()
+                - getPaddingRight() - horizontalMargins);
+
+        if (specMode != MeasureSpec.UNSPECIFIED && (lp == null || lp.width == LayoutParams.MATCH_PARENT)) {
+            mLabelWidth = available;
+        } else {
+            final CharSequence text = getLabelText();
+            mLabelWidth = (int) Math.ceil(Layout.getDesiredWidth(text == null ? "" : text, getLabelPaint()))
+                    + horizontalPadding;
+            if (specMode != MeasureSpec.UNSPECIFIED) {
+                mLabelWidth = Math.min(mLabelWidth, available);
+            }
+        }
+        mLabelHeight = getLabelLineHeight();
+        if (label != null) {
+            mLabelHeight += label.getPaddingTop() + label.getPaddingBottom();
+        }
+    }
+
+    /**
+     * Returns true if the default label is still sized by its font metrics alone. Line
+     * spacing, compound drawables or more lines set through {@link #getLabel()} make the
+     * label measure itself instead. Line counts can only be read from API 16.
+     *
+     * @return true if the label can be sized with computeSingleLineLabelSize
+     */
+    private boolean isLabelPlainSingleLine() {
+        final TextView label = mLabel;
+        for (Drawable drawable : label.getCompoundDrawables()) {
+            if (drawable != null) {
+                return false;
+            }
+        }
+        // The line height only matches the font's when there is no extra line spacing
+        if (label.getLineHeight() != label.getPaint().getFontMetricsInt(null)) {
+            return false;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            return label.getMaxLines() == 1 && label.getMinLines() <= 1;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the label's paint, or the paint reserving its space if it has not been created
+     */
+    private TextPaint getLabelPaint() {
+        return mLabel == null ? mLazyLabelPaint : mLabel.getPaint();
+    }
+
+    /**
+     * Returns the label's text, which is the hint if the label has not been created
+     */
+    private CharSequence getLabelText() {
+        return mLabel == null ? getHint() : mLabel.getText();
+    }
+
+    /**
+     * Creates the label if it was deferred in lazy label mode. If this View has already been
+     * measured, the label is laid out in the space reserved for it right away, so no layout
+     * pass is needed and it can be animated immediately.
+     *
+     * @return the label TextView
+     */
+    private TextView ensureLabel() {
+        if (mLabel != null) {
+            return mLabel;
+        }
+        final TextView label = createLabel(mStyleContext == null ? getContext() : mStyleContext);
+        if (mLazyLabelId != R.id.float_label) {
+            label.setId(mLazyLabelId);
+        }
+        label.setText(getHint());
+        if (mFloatLabelColor != 0) {
+            label.setTextColor(mFloatLabelColor);
+        }
+        label.setAlpha(0);
+        mLabel = label;
+        mLazyLabelPaint = null;
+        if (mLabelFlattened) {
+            mFlatLabelPaint = new TextPaint(label.getPaint());
+        } else {
+            // Added in layout so that no layout is requested; its space is already reserved
+            addViewInLayout(label, 0, label.getLayoutParams(), true);
+        }
+        if (mHasMeasured) {
+            label.measure(MeasureSpec.makeMeasureSpec(mLabelWidth, MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(mLabelHeight, MeasureSpec.EXACTLY));
+            layoutChild(label, mLabelWidth, mLabelHeight, getPaddingLeft(), getPaddingTop(),
+                    getWidth() - getPaddingRight(), resolveLayoutDirection(this));
+        }
+        return label;
+    }
+
+    /**
+     * Returns the Layout for the flattened label. It is only looked up again if the text,
+     * text appearance or width changed since the last lookup, and FloatLabels showing the
+     * same label share the Layout through the {@link LabelLayoutCache}.
+     *
+     * @param width int width available for the label text
+     * @return Layout to draw
+     */
+    private Layout getFlatLabelLayout(int width) {
+        final CharSequence text = mLabel.getText();
+        final TextPaint labelPaint = mLabel.getPaint();
+        final Layout layout = mFlatLabelLayout;
+        if (layout != null && mFlatLabelText == text && layout.getWidth() == width
+                && mFlatLabelPaint.getTextSize() == labelPaint.getTextSize()
+                && mFlatLabelPaint.getTypeface() == labelPaint.getTypeface()) {
+            return layout;
+        }
+        mFlatLabelPaint.set(labelPaint);
+        mFlatLabelLayout = LabelLayoutCache.get(text, mFlatLabelPaint, width);
+        mFlatLabelText = text;
+        return mFlatLabelLayout;
+    }
+
+    /**
+     * Draws the flattened label using the alpha, position and scale of the label TextView
+     * so that any LabelAnimator can drive it
+     *
+     * @param canvas Canvas to draw on
+     */
+    private void drawFlatLabel(Canvas canvas) {
+        final TextView label = mLabel;
+        final float alpha = label.getAlpha();
+        if (alpha > 0 && label.getVisibility() == VISIBLE && label.getWidth() > 0) {
+            final int textWidth = Math.max(0, label.getWidth() - label.getPaddingLeft() - label.getPaddingRight());
+            final Layout layout = getFlatLabelLayout(textWidth);
+            final int color = label.getCurrentTextColor();
+            // The Layout may be shared, so its paint is colored right before drawing
+            final TextPaint paint = layout.getPaint();
+            paint.setColor(color);
+            paint.setAlpha((int) (Color.alpha(color) * alpha));
+
+            final int saveCount = canvas.save();
+            canvas.translate(label.getLeft(), label.getTop());
+            canvas.concat(label.getMatrix());
+            // Like a TextView with lines="1", only the first line is visible
+            canvas.clipRect(0, 0, label.getWidth(), label.getHeight());
+            canvas.translate(label.getPaddingLeft(), label.getPaddingTop());
+            layout.draw(canvas);
+            canvas.restoreToCount(saveCount);
+        }
+
+        // Keep drawing frames while the label is being animated
+        final boolean changed = alpha != mFlatLabelAlpha || label.getX() != mFlatLabelX
+                || label.getY() != mFlatLabelY || label.getScaleX() != mFlatLabelScaleX
+                || label.getScaleY() != mFlatLabelScaleY;
+        mFlatLabelAlpha = alpha;
+        mFlatLabelX = label.getX();
+        mFlatLabelY = label.getY();
+        mFlatLabelScaleX = label.getScaleX();
+        mFlatLabelScaleY = label.getScaleY();
+        if (changed || AnimationUtils.currentAnimationTimeMillis() < mFlatLabelAnimationEnd) {
+            invalidate();
+        }
+    }
+
+    /**
+     * Called after the LabelAnimator has been asked to show or hide the flattened label.
+     * The label is detached, so any pending ViewPropertyAnimator animation has to be started
+     * directly rather than waiting for the label to be attached to a window.
+     */
+    private void onFlatLabelAnimationStarted() {
+        final long duration;
+        if (mLabelAnimator == mDefaultLabelAnimator) {
+            duration = mDefaultLabelAnimator.mAnimator.getDuration();
+        } else {
+            final ViewPropertyAnimator animator = mLabel.animate();
+            duration = animator.getStartDelay() + animator.getDuration();
+            animator.start();
+        }
+        mFlatLabelAnimationEnd = AnimationUtils.currentAnimationTimeMillis() + duration;
+        invalidate();
+    }
+
+    /**
+     * Stops any label animation where it is
+     */
+    private void cancelLabelAnimation() {
+        if (mLabelAnimator == mDefaultLabelAnimator) {
+            mDefaultLabelAnimator.cancel();
+        } else if (mLabel != null) {
+            mLabel.animate().cancel();
+        }
+    }
+
+    /**
+     * Shows or hides the label. Without animation, the final state is always applied, which
+     * also settles a label left partway through a cancelled animation.
+     *
+     * @param showing boolean true to show the label
+     * @param animate boolean true to use the LabelAnimator; false to immediately show or hide
+     */
+    private void setLabelShowing(boolean showing, boolean animate) {
+        if (showing == mLabelShowing && animate) {
+            return;
+        }
+        mLabelShowing = showing;
+        if (mLabel == null) {
+            if (!showing) {
+                // Nothing to hide until the label is first needed
+                return;
+            }
+            ensureLabel();
+        }
+        if (animate && !canAnimateLabel()) {
+            // Nobody would see the animation, so go straight to the final state
+            animate = false;
+        }
+        if (animate) {
+            if (showing) {
+                mLabelAnimator.onDisplayLabel(mLabel);
+            } else {
+                mLabelAnimator.onHideLabel(mLabel);
+            }
+            if (mLabelFlattened) {
+                onFlatLabelAnimationStarted();
+            }
+            if (mLabelAnimationMonitor != null) {
+                mLabelAnimationMonitor.start(mLabel, showing);
+            }
+        } else {
+            cancelLabelAnimation();
+            if (showing) {
+                mLabel.setAlpha(1);
+                mLabel.setY(0);
+            } else {
+                mLabel.setAlpha(0);
+            }
+            if (mLabelFlattened) {
+                invalidate();
+            }
+        }
+    }
+
+    /**
+     * Returns false if a label animation would not be seen or could not run properly: when
+     * this View is not attached or not shown, before the label has been laid out (the
+     * animators use its height), when animator durations are scaled to 0 and when the
+     * animation profile rules it out
+     */
+    private boolean canAnimateLabel() {
+        if (mAnimationProfile == ANIMATION_PROFILE_NONE
+                || (mAnimationProfile == ANIMATION_PROFILE_AUTO && isLowRamDevice(getContext()))) {
+            return false;
+        }
+        if (getWindowToken() == null || getWindowVisibility() != VISIBLE || !isShown()
+                || mLabel.getHeight() == 0) {
+            return false;
+        }
+        // Views scrolled off screen, such as in offscreen ViewPager pages, are still shown
+        if (!getGlobalVisibleRect(mVisibleRect)) {
+            return false;
+        }
+        return mAnimatorDurationScale != 0;
+    }
+
+    /**
+     * Returns the system animator duration scale set in the developer options
+     */
+    @SuppressWarnings("deprecation")
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+    private float getAnimatorDurationScale() {
+        final ContentResolver resolver = getContext().getContentResolver();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            return Settings.Global.getFloat(resolver, Settings.Global.ANIMATOR_DURATION_SCALE, 1f);
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            return Settings.System.getFloat(resolver, Settings.System.ANIMATOR_DURATION_SCALE, 1f);
+        }
+        return 1f;
+    }
+
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    private static boolean isLowRamDevice(Context context) {
+        if (sLowRamDevice == null) {
+            boolean lowRam = false;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                final ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+                lowRam = am.isLowRamDevice();
+            }
+            sLowRamDevice = lowRam;
+        }
+        return sLowRamDevice;
+    }
+
+    /**
+     * Initializes the view's default values and values from attrs, if not null
+     *
+     * @param context Context to access styled attributes
+     * @param attrs AttributeSet from constructor or null
+     * @param defStyle int resource ID of style to use for defaults
+     */
+    private void init(Context context, AttributeSet attrs, int defStyle) {
+        // Load custom attributes
+        Builder builder;
+        if (attrs == null) {
+            builder = new Builder(context);
+            builder.mLayout = R.layout.float_label;
+        } else if (isInEditMode() || context.getApplicationContext() == null) {
+            builder = parseAttributes(context, new Builder(context), attrs, defStyle);
+        } else {
+            // FloatLabels with the same attributes, style and theme share the resolved values
+            final StyledAttributesCache.Key key = StyledAttributesCache.createKey(context, attrs, defStyle);
+            builder = StyledAttributesCache.get(context.getTheme(), key);
+            if (builder == null) {
+                // The cached Builder must not keep this Context alive
+                builder = parseAttributes(context, new Builder(context.getApplicationContext()), attrs, defStyle);
+                StyledAttributesCache.put(context.getTheme(), key, builder);
+            }
+        }
+        init(context, builder);
+    }
+
+    /**
+     * Resolves the FloatLabel attributes into the given Builder
+     *
+     * @param context Context to resolve the attributes with
+     * @param builder Builder to fill
+     * @param attrs AttributeSet from constructor
+     * @param defStyle int resource ID of style to use for defaults
+     * @return the given Builder
+     */
+    private static Builder parseAttributes(Context context, Builder builder, AttributeSet attrs, int defStyle) {
+        final TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.FloatLabel, defStyle, 0);
+        try {
+            // Main attributes
+            builder.mLayout = a.getResourceId(R.styleable.FloatLabel_android_layout, R.layout.float_label);
+            builder.mEditTextId = a.getResourceId(R.styleable.FloatLabel_editTextId, R.id.edit_text);
+            builder.mLabelId = a.getResourceId(R.styleable.FloatLabel_labelId, R.id.float_label);
+            builder.mText = a.getText(R.styleable.FloatLabel_android_text);
+            builder.mHint = a.getText(R.styleable.FloatLabel_android_hint);
+            builder.mHintColor = a.getColorStateList(R.styleable.FloatLabel_android_textColorHint);
+            builder.mFloatLabelColor = a.getColor(R.styleable.FloatLabel_floatLabelColor, 0);
+            builder.mErrorColor = a.getColor(R.styleable.FloatLabel_floatLabelErrorColor, 0);
+            builder.mImeOptions = a.getInt(R.styleable.FloatLabel_android_imeOptions, 0);
+            builder.mInputType = a.getInt(R.styleable.FloatLabel_android_inputType, InputType.TYPE_CLASS_TEXT);
+
+            // Next focus views
+            builder.mNextFocusDownId = a.getResourceId(R.styleable.FloatLabel_android_nextFocusDown, NO_ID);
+            builder.mNextFocusForwardId = a.getResourceId(R.styleable.FloatLabel_android_nextFocusForward, NO_ID);
+            builder.mNextFocusLeftId = a.getResourceId(R.styleable.FloatLabel_android_nextFocusLeft, NO_ID);
+            builder.mNextFocusRightId = a.getResourceId(R.styleable.FloatLabel_android_nextFocusRight, NO_ID);
+            builder.mNextFocusUpId = a.getResourceId(R.styleable.FloatLabel_android_nextFocusUp, NO_ID);
+
+            builder.mFlattenLabel = a.getBoolean(R.styleable.FloatLabel_flattenLabel, false);
+            builder.mInputMask = a.getString(R.styleable.FloatLabel_inputMask);
+            builder.mCounterEnabled = a.getBoolean(R.styleable.FloatLabel_counterEnabled, false);
+            builder.mCounterMaxLength = a.getInt(R.styleable.FloatLabel_counterMaxLength, 0);
+            builder.mAnimationProfile = a.getInt(R.styleable.FloatLabel_animationProfile, ANIMATION_PROFILE_FULL);
+            builder.mLazyLabel = a.getBoolean(R.styleable.FloatLabel_lazyLabel, false);
+            builder.mDisplayMode = a.getBoolean(R.styleable.FloatLabel_displayMode, false);
+        } finally {
+            // Done with TypedArray
+            a.recycle();
+        }
+        return builder;
+    }
+
+    /**
+     * Creates or inflates the child views and applies the values held by the Builder
+     *
+     * @param context Context to create the child views with
+     * @param builder Builder holding the values to apply
+     */
+    private void init(Context context, Builder builder) {
+        final int editTextId = builder.mEditTextId;
+        final int floatLabelId = builder.mLabelId;
+
+        // The default labels are declared with lines="1"
+        mSingleLineLabel = builder.mLayout == 0 || builder.mLayout == R.layout.float_label;
+        final boolean lazyLabel = builder.mLazyLabel && mSingleLineLabel;
+        final boolean displayMode = builder.mDisplayMode && mSingleLineLabel;
+        if (builder.mLayout == 0 || lazyLabel || displayMode) {
+            createDefaultChildren(context, builder.mFlattenLabel, lazyLabel, !displayMode);
+        } else {
+            inflate(context, builder.mLayout == R.layout.float_label ? getDefaultLayout() : builder.mLayout, this);
+            mEditText = (EditText) findViewById(editTextId);
+            if (mEditText == null) {
+                // fallback to default value
+                mEditText = (EditText) findViewById(R.id.edit_text);
+            }
+            if (mEditText == null) {
+                throw new RuntimeException(
+                        "Your layout must have an EditText whose ID is @id/edit_text");
+            }
+            mLabel = (TextView) findViewById(floatLabelId);
+            if (mLabel == null) {
+                // fallback to default value
+                mLabel = (TextView) findViewById(R.id.float_label);
+            }
+            if (mLabel == null) {
+                throw new RuntimeException(
+                        "Your layout must have a TextView whose ID is @id/float_label");
+            }
+        }
+
+        if (displayMode) {
+            // The EditText is created from the Builder once it is needed
+            mDisplayBuilder = builder;
+            mDisplayHint = builder.mHint;
+            mDisplayText = builder.mText == null ? "" : builder.mText;
+            initDisplayMode(context, builder.mHintColor);
+        } else {
+            applyEditTextValues(builder);
+            mEditText.setText(builder.mText);
+        }
+
+        // Set up the label view
+        if (builder.mErrorColor != 0) {
+            mErrorColor = builder.mErrorColor;
+        }
+        mLabelFlattened = builder.mFlattenLabel;
+        mFloatLabelColor = builder.mFloatLabelColor;
+        mCustomHintColors = builder.mHintColor;
+        if (lazyLabel) {
+            mLazyLabelId = floatLabelId;
+        } else {
+            if (floatLabelId != R.id.float_label) {
+                mLabel.setId(floatLabelId);
+            }
+            mLabel.setText(getHint());
+            if (builder.mFloatLabelColor != 0)
+                mLabel.setTextColor(builder.mFloatLabelColor);
+            if (builder.mFlattenLabel) {
+                // The label TextView only holds text and animated properties from here on
+                if (mLabel.getParent() == this) {
+                    removeView(mLabel);
+                }
+                mFlatLabelPaint = new TextPaint(mLabel.getPaint());
+            }
+        }
+
+        mCounterMaxLength = builder.mCounterMaxLength;
+        setAnimationProfile(builder.mAnimationProfile);
+        setCounterEnabled(builder.mCounterEnabled);
+
+        // Listen to EditText to know when it is empty or nonempty
+        if (mEditText != null) {
+            mEditText.addTextChangedListener(new EditTextWatcher());
+        }
+
+        // Check current state of EditText
+        if (getCurrentText().length() == 0) {
+            if (mLabel != null) {
+                mLabel.setAlpha(0);
+            }
+            mLabelShowing = false;
+        } else {
+            ensureLabel().setVisibility(View.VISIBLE);
+            mLabelShowing = true;
+        }
+
+        // Mark init as complete to prevent accidentally breaking the view by
+        // adding children
+        mInitComplete = true;
+    }
+
+    /**
+     * Creates the same children as the default float_label layout without inflating it
+     *
+     * @param context Context to create the child views with
+     * @param flattenLabel boolean true to leave the label out of the View hierarchy
+     * @param lazyLabel boolean true to only reserve space for the label until it is needed
+     * @param createEditText boolean false to leave out the EditText in display mode
+     */
+    private void createDefaultChildren(Context context, boolean flattenLabel, boolean lazyLabel,
+            boolean createEditText) {
+        if (lazyLabel) {
+            mLazyLabelPaint = createLabelPaint(context);
+        } else {
+            final TextView label = createLabel(context);
+            if (!flattenLabel) {
+                addView(label);
+            }
+            mLabel = label;
+        }
+
+        if (createEditText) {
+            final EditText editText = createDefaultEditText(context);
+            addView(editText);
+            mEditText = editText;
+        }
+    }
+
+    /**
+     * Creates the same EditText as the default float_label layout
      *
-     * @param resid int String resource ID
+     * @param context Context to create the EditText with
+     * @return new EditText with LayoutParams
      */
-    public void setText(int resid) {
-        mEditText.setText(resid);
+    private EditText createDefaultEditText(Context context) {
+        final EditText editText = createEditText(context);
+        editText.setId(R.id.edit_text);
+        editText.setInputType(InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_AUTO_CORRECT
+                | InputType.TYPE_TEXT_FLAG_CAP_SENTENCES | InputType.TYPE_TEXT_FLAG_AUTO_COMPLETE);
+        final LayoutParams lp = new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT);
+        lp.topMargin = getEditTextTopMargin();
+        editText.setLayoutParams(lp);
+        return editText;
     }
 
     /**
-     * Sets the EditText's text with label animation
-     *
-     * @param text char[] text
-     * @param start int start of char array to use
-     * @param len int characters to use from the array
+     * Returns the top margin of the EditText in the default layout
      */
-    public void setText(char[] text, int start, int len) {
-        mEditText.setText(text, start, len);
+    private int getEditTextTopMargin() {
+        return getEditTextTopMargin(getResources().getDisplayMetrics());
     }
 
     /**
-     * Sets the EditText's text with label animation
+     * Returns the top margin of the EditText in the default layout
      *
-     * @param resid int String resource ID
-     * @param type TextView.BufferType
+     * @param metrics DisplayMetrics to convert the margin with
+     * @return int margin in pixels
      */
-    public void setText(int resid, TextView.BufferType type) {
-        mEditText.setText(resid, type);
+    /*package*/ static int getEditTextTopMargin(DisplayMetrics metrics) {
+        // The default EditText includes 7dp of top spacing (4dp optical), so we offset by that
+        // to tighten up the Views. Converted the way the layout_marginTop in float_label.xml
+        // is, since the rounding of negative sizes differs between platform versions.
+        return TypedValue.complexToDimensionPixelSize(EDIT_TEXT_TOP_MARGIN, metrics);
     }
 
     /**
-     * Sets the EditText's text with label animation
+     * Applies the Builder's EditText values other than the text
      *
-     * @param text CharSequence to set
+     * @param builder Builder holding the values to apply
      */
-    public void setText(CharSequence text) {
-        mEditText.setText(text);
+    private void applyEditTextValues(Builder builder) {
+        if (builder.mEditTextId != R.id.edit_text) {
+            mEditText.setId(builder.mEditTextId);
+        }
+        mEditText.setHint(builder.mHint);
+        if (!TextUtils.isEmpty(builder.mInputMask)) {
+            // Before setting the text so that it is formatted too
+            applyInputMask(new InputMask(builder.mInputMask));
+        }
+        if (builder.mHintColor != null) {
+            mEditText.setHintTextColor(builder.mHintColor);
+        }
+        if (builder.mImeOptions != 0) {
+            mEditText.setImeOptions(builder.mImeOptions);
+        }
+        if (builder.mInputType != 0) {
+            mEditText.setInputType(builder.mInputType);
+        }
+        // Set all next focus views
+        mEditText.setNextFocusDownId(builder.mNextFocusDownId);
+        mEditText.setNextFocusForwardId(builder.mNextFocusForwardId);
+        mEditText.setNextFocusLeftId(builder.mNextFocusLeftId);
+        mEditText.setNextFocusRightId(builder.mNextFocusRightId);
+        mEditText.setNextFocusUpId(builder.mNextFocusUpId);
     }
 
     /**
-     * Sets the EditText's text with label animation
+     * Sets up drawing the text in place of the EditText: the text size and colors of the
+     * theme's EditText text appearance and the padding of its background
      *
-     * @param text CharSequence to set
-     * @param type TextView.BufferType
+     * @param context Context whose theme to use
+     * @param hintColors ColorStateList to use for the hint instead of the theme's or null
      */
-    public void setText(CharSequence text, TextView.BufferType type) {
-        mEditText.setText(text, type);
+    private void initDisplayMode(Context context, ColorStateList hintColors) {
+        final TextPaint paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        paint.density = getResources().getDisplayMetrics().density;
+        final TypedArray a = context.obtainStyledAttributes(new int[] {android.R.attr.textAppearanceMedium,
+                android.R.attr.textColorPrimary, android.R.attr.textColorHint, android.R.attr.editTextBackground});
+        try {
+            final int appearance = a.getResourceId(0, 0);
+            if (appearance != 0) {
+                final TypedArray ta = context.obtainStyledAttributes(appearance, new int[] {android.R.attr.textSize});
+                paint.setTextSize(ta.getDimension(0, paint.getTextSize()));
+                ta.recycle();
+            }
+            mDisplayTextColor = a.getColor(1, Color.BLACK);
+            mDisplayHintColor = hintColors != null ? hintColors.getDefaultColor()
+                    : a.getColor(2, Color.GRAY);
+            final Drawable background = a.getDrawable(3);
+            if (background == null || !background.getPadding(mDisplayPadding)) {
+                mDisplayPadding.setEmpty();
+            }
+        } finally {
+            a.recycle();
+        }
+        mDisplayPaint = paint;
+        mDisplayTopMargin = getEditTextTopMargin();
+
+        // Tapping or focusing the field swaps in the EditText
+        setFocusable(true);
+        setFocusableInTouchMode(true);
     }
 
     /**
-     * Sets the EditText's text without animating the label
+     * Creates the same label as the default float_label layout
      *
-     * @param resid int String resource ID
+     * @param context Context to create the label with
+     * @return new TextView with LayoutParams
      */
-    public void setTextWithoutAnimation(int resid) {
-        mSkipAnimation = true;
-        mEditText.setText(resid);
+    private static TextView createLabel(Context context) {
+        final TextView label = new TextView(context);
+        label.setId(R.id.float_label);
+        label.setLines(1);
+        label.setTextIsSelectable(true);
+        label.setFocusable(false);
+        label.setFocusableInTouchMode(false);
+        final TypedValue value = new TypedValue();
+        if (context.getTheme().resolveAttribute(android.R.attr.textAppearanceSmall, value, true)) {
+            label.setTextAppearance(context, value.resourceId);
+        }
+        label.setLayoutParams(new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
+        return label;
     }
 
     /**
-     * Sets the EditText's text without animating the label
+     * Creates a paint with the text size of the default label, which is enough to reserve the
+     * label's space from its font metrics without creating it
      *
-     * @param text char[] text
-     * @param start int start of char array to use
-     * @param len int characters to use from the array
+     * @param context Context whose theme has the label text appearance
+     * @return new TextPaint
      */
-    public void setTextWithoutAnimation(char[] text, int start, int len) {
-        mSkipAnimation = true;
-        mEditText.setText(text, start, len);
+    private static TextPaint createLabelPaint(Context context) {
+        final TextPaint paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        paint.density = context.getResources().getDisplayMetrics().density;
+        final TypedValue value = new TypedValue();
+        if (context.getTheme().resolveAttribute(android.R.attr.textAppearanceSmall, value, true)) {
+            final TypedArray a = context.obtainStyledAttributes(value.resourceId, new int[] {android.R.attr.textSize});
+            try {
+                paint.setTextSize(a.getDimension(0, paint.getTextSize()));
+            } finally {
+                a.recycle();
+            }
+        }
+        return paint;
     }
 
     /**
-     * Sets the EditText's text without animating the label
+     * Returns the layout to inflate when none is specified. Called during construction.
      *
-     * @param resid int String resource ID
-     * @param type TextView.BufferType
+     * @return int layout resource ID
      */
-    public void setTextWithoutAnimation(int resid, TextView.BufferType type) {
-        mSkipAnimation = true;
-        mEditText.setText(resid, type);
+    /*package*/ int getDefaultLayout() {
+        return R.layout.float_label;
     }
 
     /**
-     * Sets the EditText's text without animating the label
+     * Creates the EditText when building the default children in code. Called during
+     * construction.
      *
-     * @param text CharSequence to set
+     * @param context Context to create the EditText with
+     * @return new EditText
      */
-    public void setTextWithoutAnimation(CharSequence text) {
-        mSkipAnimation = true;
-        mEditText.setText(text);
+    /*package*/ EditText createEditText(Context context) {
+        return new EditText(context);
     }
 
     /**
-     * Sets the EditText's text without animating the label
+     * LabelAnimator that uses the traditional float label Y shift and fade.<br>
+     * <br>
+     * A single ValueAnimator is reused for every transition. A new transition starts from the
+     * label's current alpha and position, so reversing partway through does not jump, and
+     * nothing is allocated per transition.<br>
+     * <br>
+     * By default, the shown label is moved to the top of its parent. A relative animator
+     * moves it back to where it was laid out instead, for labels that are not at the top.
      *
-     * @param text CharSequence to set
-     * @param type TextView.BufferType
+     * @author Ian G. Clifton
      */
-    public void setTextWithoutAnimation(CharSequence text, TextView.BufferType type) {
-        mSkipAnimation = true;
-        mEditText.setText(text, type);
-    }
-
-    @Override
-    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
-        final int childLeft = getPaddingLeft();
-        final int childRight = right - left - getPaddingRight();
+    /*package*/ static class DefaultLabelAnimator implements LabelAnimator, ValueAnimator.AnimatorUpdateListener {
+        private static final long DURATION = 300;
+
+        private final ValueAnimator mAnimator = ValueAnimator.ofFloat(0f, 1f);
+        private View mLabel;
+        private float mStartAlpha;
+        private float mEndAlpha;
+        private float mStartTranslationY;
+        private float mEndTranslationY;
+        private boolean mUseHardwareLayer;
+        private boolean mHardwareLayerSet;
+        DefaultLabelAnimator() {
+            mAnimator.setDuration(DURATION);
+            mAnimator.addUpdateListener(this);
+        }
 
-        int childTop = getPaddingTop();
-        final int childBottom = bottom - top - getPaddingBottom();
+        @Override
+        public void onDisplayLabel(View label) {
+            final float offset = label.getHeight() / 2;
+            final float top = label.getTop();
+            if (label.getAlpha() == 0) {
+                // Fully hidden, so start from the traditional offset without a visible jump
+                label.setTranslationY(offset - top);
+            }
+            animateTo(label, 1, -top);
+        }
 
-        layoutChild(mLabel, childLeft, childTop, childRight, childBottom);
-        layoutChild(mEditText, childLeft, childTop + mLabel.getMeasuredHeight() , childRight, childBottom);
-    }
+        @Override
+        public void onHideLabel(View label) {
+            final float offset = label.getHeight() / 2;
+            final float top = label.getTop();
+            animateTo(label, 0, offset - top);
+        }
 
-    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
-    private void layoutChild(View child, int parentLeft, int parentTop, int parentRight, int parentBottom) {
-        if (child.getVisibility() != GONE) {
-            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+        @Override
+        public void onAnimationUpdate(ValueAnimator animation) {
+            // The interpolated fraction avoids unboxing the animated value on every frame
+            final float fraction = animation.getAnimatedFraction();
+            mLabel.setAlpha(mStartAlpha + (mEndAlpha - mStartAlpha) * fraction);
+            mLabel.setTranslationY(mStartTranslationY + (mEndTranslationY - mStartTranslationY) * fraction);
+            if (fraction == 1) {
+                removeHardwareLayer();
+            }
+        }
 
-            final int width = child.getMeasuredWidth();
-            final int height = child.getMeasuredHeight();
+        /**
+         * Returns the duration of the current or last transition
+         */
+        long getDuration() {
+            return mAnimator.getDuration();
+        }
 
-            int childLeft;
-            final int childTop = parentTop + lp.topMargin;
+        /**
+         * Stops the current transition where it is
+         */
+        void cancel() {
+            mAnimator.cancel();
+            removeHardwareLayer();
+        }
 
-            int gravity = lp.gravity;
-            if (gravity == -1) {
-                gravity = Gravity.TOP | Gravity.START;
+        private void animateTo(View label, float alpha, float translationY) {
+            mAnimator.cancel();
+            if (mLabel != null && mLabel != label) {
+                removeHardwareLayer();
             }
-
-            final int layoutDirection;
-            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR1) {
-                layoutDirection = LAYOUT_DIRECTION_LTR;
-            } else {
-                layoutDirection = getLayoutDirection();
+            mLabel = label;
+            mStartAlpha = label.getAlpha();
+            mEndAlpha = alpha;
+            mStartTranslationY = label.getTranslationY();
+            mEndTranslationY = translationY;
+
+            // Cover only the remaining distance when picking up from a partial transition
+            final float remaining = Math.abs(mEndAlpha - mStartAlpha);
+            mAnimator.setDuration(Math.max(1, (long) (DURATION * remaining)));
+            if (mUseHardwareLayer && !mHardwareLayerSet && label.getParent() != null) {
+                label.setLayerType(LAYER_TYPE_HARDWARE, null);
+                mHardwareLayerSet = true;
             }
+            mAnimator.start();
+        }
 
-            final int absoluteGravity = Gravity.getAbsoluteGravity(gravity, layoutDirection);
-
-            switch (absoluteGravity & Gravity.HORIZONTAL_GRAVITY_MASK) {
-                case Gravity.CENTER_HORIZONTAL:
-                    childLeft = parentLeft + (parentRight - parentLeft - width) / 2 + lp.leftMargin - lp.rightMargin;
-                    break;
-                case Gravity.END:
-                    childLeft = parentRight - width - lp.rightMargin;
-                    break;
-                case Gravity.START:
-                default:
-                    childLeft = parentLeft + lp.leftMargin;
+        private void removeHardwareLayer() {
+            if (mHardwareLayerSet) {
+                mLabel.setLayerType(LAYER_TYPE_NONE, null);
+                mHardwareLayerSet = false;
             }
-
-            child.layout(childLeft, childTop, childLeft + width, childTop + height);
         }
     }
 
-    @Override
-    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        // Restore any state that's been pending before measuring
-        if (mSavedState != null) {
-            Parcelable childState = mSavedState.getParcelable(SAVE_STATE_KEY_EDIT_TEXT);
-            mEditText.onRestoreInstanceState(childState);
-            childState = mSavedState.getParcelable(SAVE_STATE_KEY_LABEL);
-            mLabel.onRestoreInstanceState(childState);
-            if (mSavedState.getBoolean(SAVE_STATE_KEY_FOCUS, false)) {
-                mEditText.requestFocus();
-            }
-            mSavedState = null;
+    /**
+     * Runs a Validator in the background and shows its result unless the text has changed
+     */
+    private class ValidationTask implements Runnable {
+        private final Validator mTaskValidator;
+        private final int mGeneration;
+        private final String mText;
+        private CharSequence mResult;
+        private boolean mValidated;
+
+        ValidationTask(Validator validator, int generation, String text) {
+            mTaskValidator = validator;
+            mGeneration = generation;
+            mText = text;
         }
-        measureChild(mEditText, widthMeasureSpec, heightMeasureSpec);
-        measureChild(mLabel, widthMeasureSpec, heightMeasureSpec);
-        setMeasuredDimension(measureWidth(widthMeasureSpec), measureHeight(heightMeasureSpec));
-    }
 
-    @Override
-    protected void onRestoreInstanceState(Parcelable state) {
-        if (state instanceof Bundle) {
-            final Bundle savedState = (Bundle) state;
-            if (savedState.getBoolean(SAVE_STATE_TAG, false)) {
-                // Save our state for later since children will have theirs restored after this
-                // and having more than one FloatLabel in an Activity or Fragment means you have
-                // multiple views of the same ID
-                mSavedState = savedState;
-                super.onRestoreInstanceState(savedState.getParcelable(SAVE_STATE_PARENT));
+        @Override
+        public void run() {
+            if (!mValidated) {
+                // Background thread
+                if (mGeneration != mValidationGeneration) {
+                    // Stale before it started
+                    return;
+                }
+                mResult = mTaskValidator.validate(mText);
+                mValidated = true;
+                sMainHandler.post(this);
                 return;
             }
-        }
 
-        super.onRestoreInstanceState(state);
-    }
-
-    @Override
-    protected Parcelable onSaveInstanceState() {
-        final Parcelable superState = super.onSaveInstanceState();
-        final Bundle saveState = new Bundle();
-        saveState.putParcelable(SAVE_STATE_KEY_EDIT_TEXT, mEditText.onSaveInstanceState());
-        saveState.putParcelable(SAVE_STATE_KEY_LABEL, mLabel.onSaveInstanceState());
-        saveState.putBoolean(SAVE_STATE_KEY_FOCUS, mEditText.isFocused());
-        saveState.putBoolean(SAVE_STATE_TAG, true);
-        saveState.putParcelable(SAVE_STATE_PARENT, superState);
-
-        return saveState;
+            // Main thread
+            if (mGeneration == mValidationGeneration && mTaskValidator == mValidator) {
+                setError(mResult);
+            }
+        }
     }
 
-    private int measureHeight(int heightMeasureSpec) {
-        int specMode = MeasureSpec.getMode(heightMeasureSpec);
-        int specSize = MeasureSpec.getSize(heightMeasureSpec);
-
-        int result = 0;
-        if (specMode == MeasureSpec.EXACTLY) {
-            result = specSize;
-        } else {
-            result = mEditText.getMeasuredHeight() + mLabel.getMeasuredHeight();
-            result += getPaddingTop() + getPaddingBottom();
-            result = Math.max(result, getSuggestedMinimumHeight());
+    /**
+     * Hands values to a ValueObserver on its Executor one at a time. A value that arrives while
+     * one is queued or being delivered replaces any value still waiting.
+     */
+    /*package*/ static class ValueDelivery implements Runnable {
+        private final ValueObserver mObserver;
+        private final Executor mExecutor;
+        private String mPendingValue;
+        private boolean mQueued;
+        private volatile boolean mCancelled;
+
+        ValueDelivery(ValueObserver observer, Executor executor) {
+            mObserver = observer;
+            mExecutor = executor;
+        }
 
-            if (specMode == MeasureSpec.AT_MOST) {
-                result = Math.min(result, specSize);
+        /**
+         * Main thread: queues the value, replacing any value that has not been delivered
+         */
+        void deliver(String value) {
+            synchronized (this) {
+                mPendingValue = value;
+                if (mQueued) {
+                    return;
+                }
+                mQueued = true;
             }
+            mExecutor.execute(this);
         }
 
-        return result;
-    }
-
-    private int measureWidth(int widthMeasureSpec) {
-        int specMode = MeasureSpec.getMode(widthMeasureSpec);
-        int specSize = MeasureSpec.getSize(widthMeasureSpec);
+        /**
+         * Drops any value that has not been delivered
+         */
+        void cancel() {
+            mCancelled = true;
+        }
 
-        int result = 0;
-        if (specMode == MeasureSpec.EXACTLY) {
-            result = specSize;
-        } else {
-            result = Math.max(mEditText.getMeasuredWidth(), mLabel.getMeasuredWidth());
-            result = Math.max(result, getSuggestedMinimumWidth());
-            result += getPaddingLeft() + getPaddingRight();
-            if (specMode == MeasureSpec.AT_MOST) {
-                result = Math.min(result, specSize);
+        @Override
+        public void run() {
+            // Executor thread
+            while (true) {
+                final String value;
+                synchronized (this) {
+                    value = mPendingValue;
+                    mPendingValue = null;
+                    if (value == null || mCancelled) {
+                        mQueued = false;
+                        return;
+                    }
+                }
+                mObserver.onValueChanged(value);
             }
         }
-
-        return result;
     }
 
     /**
-     * Initializes the view's default values and values from attrs, if not null
-     *
-     * @param context Context to access styled attributes
-     * @param attrs AttributeSet from constructor or null
-     * @param defStyle int resource ID of style to use for defaults
+     * Saved state of a FloatLabel. The label text is derived from the hint, so only the
+     * EditText's state and two flags are kept. Public so that Parcel can read its CREATOR.
      */
-    private void init(Context context, AttributeSet attrs, int defStyle) {
-        // Load custom attributes
-        final int layout;
-        int editTextId = R.id.edit_text;
-        int floatLabelId = R.id.float_label;
-        final CharSequence text;
-        final CharSequence hint;
-        final ColorStateList hintColor;
-        final int floatLabelColor;
-        final int imeOptions;
-        final int inputType;
-        final int nextFocusDownId;
-        final int nextFocusForwardId;
-        final int nextFocusLeftId;
-        final int nextFocusRightId;
-        final int nextFocusUpId;
-
-        if (attrs == null) {
-            layout = R.layout.float_label;
-            text = null;
-            hint = null;
-            hintColor = null;
-            floatLabelColor = 0;
-            imeOptions = 0;
-            inputType = 0;
-            nextFocusDownId = NO_ID;
-            nextFocusForwardId = NO_ID;
-            nextFocusLeftId = NO_ID;
-            nextFocusRightId = NO_ID;
-            nextFocusUpId = NO_ID;
-        } else {
-            final TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.FloatLabel, defStyle, 0);
-
-            // Main attributes
-            layout = a.getResourceId(R.styleable.FloatLabel_android_layout, R.layout.float_label);
-            editTextId = a.getResourceId(R.styleable.FloatLabel_editTextId, R.id.edit_text);
-            floatLabelId = a.getResourceId(R.styleable.FloatLabel_labelId, R.id.float_label);
-            text = a.getText(R.styleable.FloatLabel_android_text);
-            hint = a.getText(R.styleable.FloatLabel_android_hint);
-            hintColor = a.getColorStateList(R.styleable.FloatLabel_android_textColorHint);
-            floatLabelColor = a.getColor(R.styleable.FloatLabel_floatLabelColor, 0);
-            imeOptions = a.getInt(R.styleable.FloatLabel_android_imeOptions, 0);
-            inputType = a.getInt(R.styleable.FloatLabel_android_inputType, InputType.TYPE_CLASS_TEXT);
-
-            // Next focus views
-            nextFocusDownId = a.getResourceId(R.styleable.FloatLabel_android_nextFocusDown, NO_ID);
-            nextFocusForwardId = a.getResourceId(R.styleable.FloatLabel_android_nextFocusForward, NO_ID);
-            nextFocusLeftId = a.getResourceId(R.styleable.FloatLabel_android_nextFocusLeft, NO_ID);
-            nextFocusRightId = a.getResourceId(R.styleable.FloatLabel_android_nextFocusRight, NO_ID);
-            nextFocusUpId = a.getResourceId(R.styleable.FloatLabel_android_nextFocusUp, NO_ID);
+    public static class SavedState extends BaseSavedState {
+        private static final int FLAG_FOCUSED = 1;
+        private static final int FLAG_LABEL_SHOWING = 1 << 1;
 
-            // Done with TypedArray
-            a.recycle();
-        }
+        private Parcelable mEditTextState;
+        private CharSequence mDisplayText;
+        private boolean mFocused;
+        private boolean mLabelShowing;
 
-        inflate(context, layout, this);
-        mEditText = (EditText) findViewById(editTextId);
-        if (mEditText == null) {
-            // fallback to default value
-            mEditText = (EditText) findViewById(R.id.edit_text);
-        }
-        if (mEditText == null) {
-            throw new RuntimeException(
-                    "Your layout must have an EditText whose ID is @id/edit_text");
-        }
-        if (editTextId != R.id.edit_text) {
-            mEditText.setId(editTextId);
-        }
-        mEditText.setHint(hint);
-        mEditText.setText(text);
-        if (hintColor != null) {
-            mEditText.setHintTextColor(hintColor);
-        }
-        if (imeOptions != 0) {
-            mEditText.setImeOptions(imeOptions);
-        }
-        if (inputType != 0) {
-            mEditText.setInputType(inputType);
+        SavedState(Parcelable superState) {
+            super(superState);
         }
-        // Set all next focus views
-        mEditText.setNextFocusDownId(nextFocusDownId);
-        mEditText.setNextFocusForwardId(nextFocusForwardId);
-        mEditText.setNextFocusLeftId(nextFocusLeftId);
-        mEditText.setNextFocusRightId(nextFocusRightId);
-        mEditText.setNextFocusUpId(nextFocusUpId);
 
-        // Set up the label view
-        mLabel = (TextView) findViewById(floatLabelId);
-        if (mLabel == null) {
-            // fallback to default value
-            mLabel = (TextView) findViewById(R.id.float_label);
-        }
-        if (mLabel == null) {
-            throw new RuntimeException(
-                    "Your layout must have a TextView whose ID is @id/float_label");
-        }
-        if (floatLabelId != R.id.float_label) {
-            mLabel.setId(floatLabelId);
+        private SavedState(Parcel in) {
+            super(in);
+            mEditTextState = in.readParcelable(SavedState.class.getClassLoader());
+            mDisplayText = TextUtils.CHAR_SEQUENCE_CREATOR.createFromParcel(in);
+            final int flags = in.readInt();
+            mFocused = (flags & FLAG_FOCUSED) != 0;
+            mLabelShowing = (flags & FLAG_LABEL_SHOWING) != 0;
         }
-        mLabel.setText(mEditText.getHint());
-        if (floatLabelColor != 0)
-            mLabel.setTextColor(floatLabelColor);
-
-        // Listen to EditText to know when it is empty or nonempty
-        mEditText.addTextChangedListener(new EditTextWatcher());
 
-        // Check current state of EditText
-        if (mEditText.getText().length() == 0) {
-            mLabel.setAlpha(0);
-            mLabelShowing = false;
-        } else {
-            mLabel.setVisibility(View.VISIBLE);
-            mLabelShowing = true;
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeParcelable(mEditTextState, flags);
+            TextUtils.writeToParcel(mDisplayText, out, flags);
+            out.writeInt((mFocused ? FLAG_FOCUSED : 0) | (mLabelShowing ? FLAG_LABEL_SHOWING : 0));
         }
 
-        // Mark init as complete to prevent accidentally breaking the view by
-        // adding children
-        mInitComplete = true;
-    }
-
-    /**
-     * LabelAnimator that uses the traditional float label Y shift and fade.
-     *
-     * @author Ian G. Clifton
-     */
-    private static class DefaultLabelAnimator implements LabelAnimator {
-
-        @Override
-        public void onDisplayLabel(View label) {
-            final float offset = label.getHeight() / 2;
-            final float currentY = label.getY();
-            if (currentY != offset) {
-                label.setY(offset);
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
             }
-            label.animate().alpha(1).y(0);
-        }
 
-        @Override
-        public void onHideLabel(View label) {
-            final float offset = label.getHeight() / 2;
-            final float currentY = label.getY();
-            if (currentY != 0) {
-                label.setY(0);
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
             }
-            label.animate().alpha(0).y(offset);
-        }
+        };
     }
+
     /**
      * TextWatcher that notifies FloatLabel when the EditText changes between
      * having text and not having text or vice versa.
@@ -628,43 +3177,55 @@ public class FloatLabel extends FrameLayout {
     private class EditTextWatcher implements TextWatcher {
         @Override
         public void afterTextChanged(Editable s) {
-            if (mSkipAnimation) {
-                mSkipAnimation = false;
-                if (s.length() == 0) {
-                    // TextView label should be gone
-                    if (mLabelShowing) {
-                        mLabel.setAlpha(0);
-                        mLabelShowing = false;
-                    }
-                } else if (!mLabelShowing) {
-                    // TextView label should be visible
-                    mLabel.setAlpha(1);
-                    mLabel.setY(0);
-                    mLabelShowing = true;
-                }
-                return;
+            final boolean animate = !mSkipAnimation;
+            mSkipAnimation = false;
+
+            mTextGeneration++;
+
+            // TextView label should only be visible when the text is nonempty or it shows an
+            // error; during a batch, only the final state is applied when it ends
+            if (!mInBatch) {
+                setLabelShowing(isLabelNeeded(s), animate);
             }
-            if (s.length() == 0) {
-                // Text is empty; TextView label should be invisible
-                if (mLabelShowing) {
-                    mLabelAnimator.onHideLabel(mLabel);
-                    mLabelShowing = false;
+
+            scheduleValidation();
+            onValueEdited();
+
+            if (mDraftStore != null && !mRestoringDraft && !mBinding) {
+                if (mInBatch) {
+                    // Saved once when the batch ends
+                    mDraftEditedInBatch = true;
+                } else {
+                    mDraftStore.onTextChanged(mDraftKey, s);
                 }
-            } else if (!mLabelShowing) {
-                // Text is nonempty; TextView label should be visible
-                mLabelShowing = true;
-                mLabelAnimator.onDisplayLabel(mLabel);
+            }
+
+            if (mBoundTextWatcher != null && !mBinding) {
+                mBoundTextWatcher.afterTextChanged(s);
             }
         }
 
         @Override
         public void beforeTextChanged(CharSequence s, int start, int count, int after) {
-            // Ignored
+            if (mLengthCounter != null) {
+                mLengthCounter.beforeTextChanged(s, start, count);
+            }
+            if (mBoundTextWatcher != null && !mBinding) {
+                mBoundTextWatcher.beforeTextChanged(s, start, count, after);
+            }
         }
 
         @Override
         public void onTextChanged(CharSequence s, int start, int before, int count) {
-            // Ignored
+            if (mLengthCounter != null) {
+                mLengthCounter.onTextChanged(s, before, count);
+                if (mLengthCounter.getGraphemeCount() != mCounterShown) {
+                    invalidate();
+                }
+            }
+            if (mBoundTextWatcher != null && !mBinding) {
+                mBoundTextWatcher.onTextChanged(s, start, before, count);
+            }
         }
     }
 }
@@ -0,0 +1,518 @@
+/*
+ * Copyright (C) 2014 Ian G. Clifton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iangclifton.android.floatlabel;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.os.Build;
+import android.text.Editable;
+import android.text.Layout;
+import android.text.TextPaint;
+import android.text.TextWatcher;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewPropertyAnimator;
+import android.view.animation.AnimationUtils;
+import android.widget.EditText;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+
+/**
+ * A vertical ViewGroup that hosts many float label fields directly, without a FloatLabel
+ * per field.<br>
+ * <br>
+ * Each EditText child gets a label, created from its hint when the EditText is added,
+ * whether by inflation, {@link #addField(EditText)} or addView, and removed along with the
+ * EditText however it is removed. Like a flattened FloatLabel, the labels are TextViews that
+ * are not children: the form measures them and draws them above their EditTexts, so a form
+ * of N fields is measured and laid out in one pass over N children instead of N nested
+ * FloatLabel passes. Children other than EditTexts, such as section headers, are stacked as
+ * they are. Children are laid out with the same gravity, margin and RTL handling as
+ * FloatLabel.<br>
+ * <br>
+ * Labels show and hide with a {@link FloatLabel.LabelAnimator}. Each label is laid out at
+ * the top of its own field, so animators that move it with setY or y(), as well as ones
+ * that use translationY, work as they do in a FloatLabel. As the labels are drawn by the
+ * form, the text of a label is read out through its EditText's hint rather than on its own.
+ *
+ * @author Ian G. Clifton
+ */
+public class FloatLabelForm extends ViewGroup {
+
+    /**
+     * Fields in this form, in order
+     */
+    private final ArrayList<Field> mFields = new ArrayList<Field>();
+
+    /**
+     * Custom LabelAnimator, or null to give each field its own default animator
+     */
+    private FloatLabel.LabelAnimator mLabelAnimator;
+
+    /**
+     * Top margin added to each EditText to tighten it up against its label
+     */
+    private final int mEditTextTopMargin;
+
+    private final Paint.FontMetricsInt mFontMetrics = new Paint.FontMetricsInt();
+
+    /**
+     * Adopts and cleans up fields however children are added and removed, and passes the
+     * changes on to any listener set by the app
+     */
+    private final PassThroughHierarchyChangeListener mPassThroughListener;
+
+    public FloatLabelForm(Context context) {
+        this(context, null, 0);
+    }
+
+    public FloatLabelForm(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public FloatLabelForm(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+        mEditTextTopMargin = FloatLabel.getEditTextTopMargin(getResources().getDisplayMetrics());
+        mPassThroughListener = new PassThroughHierarchyChangeListener();
+        super.setOnHierarchyChangeListener(mPassThroughListener);
+    }
+
+    /**
+     * Adds an EditText to the end of the form along with a label made from its hint
+     *
+     * @param editText EditText to add
+     */
+    public void addField(EditText editText) {
+        addView(editText);
+    }
+
+    /**
+     * Returns the label of a field. The label is drawn by the form rather than being a child,
+     * so call {@link #requestLayout()} after changing its text appearance or padding.
+     *
+     * @param editText EditText of the field
+     * @return the label TextView or null if the EditText is not a field of this form
+     */
+    public TextView getLabel(EditText editText) {
+        final Field field = findField(editText);
+        return field == null ? null : field.mLabel;
+    }
+
+    /**
+     * Sets the label and hint of a field
+     *
+     * @param editText EditText of the field
+     * @param label CharSequence to use as the label and hint
+     */
+    public void setLabel(EditText editText, CharSequence label) {
+        final Field field = findField(editText);
+        if (field == null) {
+            throw new IllegalArgumentException("The EditText is not a field of this FloatLabelForm");
+        }
+        editText.setHint(label);
+        field.mLabel.setText(label);
+        // The label is a single line sized from its font metrics, so only its text changes
+        invalidate();
+    }
+
+    /**
+     * Specifies a new LabelAnimator to handle calls to show/hide the labels of all fields
+     *
+     * @param labelAnimator LabelAnimator to use; null causes use of the default LabelAnimator
+     */
+    public void setLabelAnimator(FloatLabel.LabelAnimator labelAnimator) {
+        for (int i = 0; i < mFields.size(); i++) {
+            mFields.get(i).cancelAnimation();
+        }
+        mLabelAnimator = labelAnimator;
+    }
+
+    @Override
+    public void setOnHierarchyChangeListener(OnHierarchyChangeListener listener) {
+        mPassThroughListener.mListener = listener;
+    }
+
+    private void onChildAdded(View child) {
+        if (child instanceof EditText && findField((EditText) child) == null) {
+            adoptField((EditText) child);
+        }
+    }
+
+    private void onChildRemoved(View child) {
+        final ViewGroup.LayoutParams lp = child.getLayoutParams();
+        if (lp instanceof LayoutParams && ((LayoutParams) lp).mField != null) {
+            removeField(((LayoutParams) lp).mField);
+        }
+    }
+
+    private Field findField(EditText editText) {
+        if (editText.getParent() != this) {
+            return null;
+        }
+        final ViewGroup.LayoutParams lp = editText.getLayoutParams();
+        return lp instanceof LayoutParams ? ((LayoutParams) lp).mField : null;
+    }
+
+    /**
+     * Creates the label for an EditText that is already a child and starts watching its text
+     */
+    private void adoptField(EditText editText) {
+        final Context context = getContext();
+        final TextView label = new TextView(context);
+        label.setLines(1);
+        final TypedValue value = new TypedValue();
+        if (context.getTheme().resolveAttribute(android.R.attr.textAppearanceSmall, value, true)) {
+            label.setTextAppearance(context, value.resourceId);
+        }
+        // Used by the TextView when its text changes, although it has no parent
+        label.setLayoutParams(new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
+        label.setText(editText.getHint());
+        final boolean showing = editText.length() != 0;
+        label.setAlpha(showing ? 1 : 0);
+
+        // Taken back off when the field is removed, so adding it again does not stack it; the
+        // EditText's own addView already requested layout
+        final LayoutParams lp = (LayoutParams) editText.getLayoutParams();
+        lp.topMargin += mEditTextTopMargin;
+
+        final Field field = new Field(label, editText, showing);
+        lp.mField = field;
+        editText.addTextChangedListener(field);
+        mFields.add(field);
+    }
+
+    /**
+     * Stops watching a field's text and takes back the margin added to its EditText
+     */
+    private void removeField(Field field) {
+        field.cancelAnimation();
+        field.mEditText.removeTextChangedListener(field);
+        mFields.remove(field);
+        final ViewGroup.LayoutParams lp = field.mEditText.getLayoutParams();
+        if (lp instanceof LayoutParams) {
+            ((LayoutParams) lp).topMargin -= mEditTextTopMargin;
+            ((LayoutParams) lp).mField = null;
+        }
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        final int widthMode = MeasureSpec.getMode(widthMeasureSpec);
+        final int horizontalPadding = getPaddingLeft() + getPaddingRight();
+        final int verticalPadding = getPaddingTop() + getPaddingBottom();
+        int maxWidth = 0;
+        int height = 0;
+
+        // One pass over every child; labels are single lines sized from their font metrics
+        final int count = getChildCount();
+        for (int i = 0; i < count; i++) {
+            final View child = getChildAt(i);
+            if (child.getVisibility() == GONE) {
+                continue;
+            }
+            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            if (lp.mField != null) {
+                final TextView label = lp.mField.mLabel;
+                label.getPaint().getFontMetricsInt(mFontMetrics);
+                final int labelHeight = mFontMetrics.bottom - mFontMetrics.top
+                        + label.getPaddingTop() + label.getPaddingBottom();
+                final int labelWidthSpec;
+                if (widthMode == MeasureSpec.UNSPECIFIED) {
+                    labelWidthSpec = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+                } else {
+                    labelWidthSpec = MeasureSpec.makeMeasureSpec(Math.max(0,
+                            MeasureSpec.getSize(widthMeasureSpec) - horizontalPadding), MeasureSpec.EXACTLY);
+                }
+                label.measure(labelWidthSpec, MeasureSpec.makeMeasureSpec(labelHeight, MeasureSpec.EXACTLY));
+                maxWidth = Math.max(maxWidth, label.getMeasuredWidth());
+                height += labelHeight;
+            }
+            measureChildWithMargins(child, widthMeasureSpec, 0, heightMeasureSpec, height);
+            maxWidth = Math.max(maxWidth, child.getMeasuredWidth() + lp.leftMargin + lp.rightMargin);
+            height += child.getMeasuredHeight() + lp.topMargin + lp.bottomMargin;
+        }
+
+        maxWidth = Math.max(maxWidth + horizontalPadding, getSuggestedMinimumWidth());
+        height = Math.max(height + verticalPadding, getSuggestedMinimumHeight());
+        setMeasuredDimension(resolveSize(maxWidth, widthMeasureSpec), resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        final int childLeft = getPaddingLeft();
+        final int childRight = right - left - getPaddingRight();
+        final int layoutDirection = FloatLabel.resolveLayoutDirection(this);
+        int childTop = getPaddingTop();
+
+        final int count = getChildCount();
+        for (int i = 0; i < count; i++) {
+            final View child = getChildAt(i);
+            if (child.getVisibility() == GONE) {
+                continue;
+            }
+            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            final Field field = lp.mField;
+            if (field != null) {
+                // The label is laid out at the top of its field, as in a FloatLabel, so that
+                // a LabelAnimator's y values are relative to the field; it is drawn offset
+                final TextView label = field.mLabel;
+                setLabelLayoutDirection(label, layoutDirection);
+                FloatLabel.layoutChild(label, label.getMeasuredWidth(), label.getMeasuredHeight(), childLeft, 0,
+                        childRight, layoutDirection);
+                field.mTop = childTop;
+                childTop += label.getMeasuredHeight();
+            }
+            final int height = child.getMeasuredHeight();
+            FloatLabel.layoutChild(child, child.getMeasuredWidth(), height, childLeft, childTop, childRight, layoutDirection);
+            childTop += lp.topMargin + height + lp.bottomMargin;
+        }
+    }
+
+    /**
+     * Gives a label the form's layout direction, which it cannot inherit without a parent
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+    private static void setLabelLayoutDirection(TextView label, int layoutDirection) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            label.setLayoutDirection(layoutDirection);
+        }
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        // Labels first so that they sit beneath the EditTexts like children would
+        for (int i = 0; i < mFields.size(); i++) {
+            final Field field = mFields.get(i);
+            if (field.mEditText.getVisibility() != GONE) {
+                field.draw(canvas);
+            }
+        }
+        super.dispatchDraw(canvas);
+    }
+
+    @Override
+    protected boolean checkLayoutParams(ViewGroup.LayoutParams p) {
+        return p instanceof LayoutParams;
+    }
+
+    @Override
+    protected LayoutParams generateDefaultLayoutParams() {
+        return new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT);
+    }
+
+    @Override
+    public LayoutParams generateLayoutParams(AttributeSet attrs) {
+        return new LayoutParams(getContext(), attrs);
+    }
+
+    @Override
+    protected LayoutParams generateLayoutParams(ViewGroup.LayoutParams p) {
+        if (p instanceof MarginLayoutParams) {
+            return new LayoutParams((MarginLayoutParams) p);
+        }
+        return new LayoutParams(p);
+    }
+
+    /**
+     * Per-child layout information; the same as FrameLayout's, of which only the horizontal
+     * gravity and the margins are used
+     */
+    public static class LayoutParams extends FrameLayout.LayoutParams {
+
+        /**
+         * Field the child is the EditText of, so that it is found without a search
+         */
+        private Field mField;
+
+        public LayoutParams(Context c, AttributeSet attrs) {
+            super(c, attrs);
+        }
+
+        public LayoutParams(int width, int height) {
+            super(width, height);
+        }
+
+        public LayoutParams(ViewGroup.LayoutParams source) {
+            super(source);
+        }
+
+        public LayoutParams(MarginLayoutParams source) {
+            super(source);
+        }
+    }
+
+    /**
+     * Keeps the form's fields in step with its children before notifying the app's listener.
+     * onViewAdded and onViewRemoved cannot be overridden before API 23.
+     */
+    private class PassThroughHierarchyChangeListener implements OnHierarchyChangeListener {
+        private OnHierarchyChangeListener mListener;
+
+        @Override
+        public void onChildViewAdded(View parent, View child) {
+            onChildAdded(child);
+            if (mListener != null) {
+                mListener.onChildViewAdded(parent, child);
+            }
+        }
+
+        @Override
+        public void onChildViewRemoved(View parent, View child) {
+            onChildRemoved(child);
+            if (mListener != null) {
+                mListener.onChildViewRemoved(parent, child);
+            }
+        }
+    }
+
+    /**
+     * A label and its EditText. Shows and hides the label as the text changes and draws it.
+     */
+    private class Field implements TextWatcher {
+        private final TextView mLabel;
+        private final EditText mEditText;
+        private boolean mShowing;
+        private FloatLabel.DefaultLabelAnimator mDefaultAnimator;
+
+        /**
+         * Top of the field within the form, where the label is drawn
+         */
+        private int mTop;
+
+        /**
+         * Label properties when last drawn and the end of the current animation, so that
+         * frames keep being drawn while the label is animated
+         */
+        private float mDrawnAlpha;
+        private float mDrawnX;
+        private float mDrawnY;
+        private float mDrawnScaleX;
+        private float mDrawnScaleY;
+        private long mAnimationEnd;
+
+        Field(TextView label, EditText editText, boolean showing) {
+            mLabel = label;
+            mEditText = editText;
+            mShowing = showing;
+        }
+
+        void cancelAnimation() {
+            if (mDefaultAnimator != null) {
+                mDefaultAnimator.cancel();
+            }
+            mLabel.animate().cancel();
+            mAnimationEnd = 0;
+        }
+
+        /**
+         * Draws the label with its alpha, position and scale so that any LabelAnimator can
+         * drive it
+         */
+        void draw(Canvas canvas) {
+            final TextView label = mLabel;
+            final float alpha = label.getAlpha();
+            final Layout layout = label.getLayout();
+            if (alpha > 0 && label.getVisibility() == VISIBLE && layout != null) {
+                final int color = label.getCurrentTextColor();
+                final TextPaint paint = layout.getPaint();
+                paint.setColor(color);
+                paint.setAlpha((int) (Color.alpha(color) * alpha));
+
+                final int saveCount = canvas.save();
+                canvas.translate(label.getLeft(), mTop + label.getTop());
+                canvas.concat(label.getMatrix());
+                // Like a TextView with lines="1", only the first line is visible
+                canvas.clipRect(0, 0, label.getWidth(), label.getHeight());
+                canvas.translate(label.getCompoundPaddingLeft(), label.getExtendedPaddingTop());
+                layout.draw(canvas);
+                canvas.restoreToCount(saveCount);
+            }
+
+            final boolean changed = alpha != mDrawnAlpha || label.getX() != mDrawnX || label.getY() != mDrawnY
+                    || label.getScaleX() != mDrawnScaleX || label.getScaleY() != mDrawnScaleY;
+            mDrawnAlpha = alpha;
+            mDrawnX = label.getX();
+            mDrawnY = label.getY();
+            mDrawnScaleX = label.getScaleX();
+            mDrawnScaleY = label.getScaleY();
+            if (changed || AnimationUtils.currentAnimationTimeMillis() < mAnimationEnd) {
+                invalidate();
+            }
+        }
+
+        @Override
+        public void afterTextChanged(Editable s) {
+            final boolean showing = s.length() != 0;
+            if (showing == mShowing) {
+                return;
+            }
+            mShowing = showing;
+
+            if (getWindowToken() == null || !isShown() || mLabel.getHeight() == 0) {
+                // Nobody would see the animation
+                cancelAnimation();
+                mLabel.setAlpha(showing ? 1 : 0);
+                mLabel.setTranslationY(0);
+                invalidate();
+                return;
+            }
+
+            FloatLabel.LabelAnimator animator = mLabelAnimator;
+            if (animator == null) {
+                if (mDefaultAnimator == null) {
+                    // Each field gets its own so fields can animate at the same time
+                    mDefaultAnimator = new FloatLabel.DefaultLabelAnimator();
+                }
+                animator = mDefaultAnimator;
+            }
+            if (showing) {
+                animator.onDisplayLabel(mLabel);
+            } else {
+                animator.onHideLabel(mLabel);
+            }
+
+            // The label has no window, so a ViewPropertyAnimator animation would wait for one
+            final long duration;
+            if (animator == mDefaultAnimator) {
+                duration = mDefaultAnimator.getDuration();
+            } else {
+                final ViewPropertyAnimator propertyAnimator = mLabel.animate();
+                duration = propertyAnimator.getStartDelay() + propertyAnimator.getDuration();
+                propertyAnimator.start();
+            }
+            mAnimationEnd = AnimationUtils.currentAnimationTimeMillis() + duration;
+            invalidate();
+        }
+
+        @Override
+        public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            // Ignored
+        }
+
+        @Override
+        public void onTextChanged(CharSequence s, int start, int before, int count) {
+            // Ignored
+        }
+    }
+}
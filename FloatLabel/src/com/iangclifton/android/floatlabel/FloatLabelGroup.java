@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2014 Ian G. Clifton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iangclifton.android.floatlabel;
+
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+
+/**
+ * A set of FloatLabels that can be updated together in one transaction.<br>
+ * <br>
+ * Between {@link #beginTransaction()} and {@link #commit()}, any setText or setLabel calls on
+ * the FloatLabels in the group do not show or hide their labels and do not request layout.
+ * When the transaction is committed, each FloatLabel applies its final label state once,
+ * without animation, and requests layout at most once, and only if one of the deferred
+ * updates asked for it. Validation, value delivery and draft saving are deferred too: each
+ * FloatLabel whose text changed handles its final text once, however many times it was set.
+ * This is meant for prefilling large forms, such as from a saved record.
+ *
+ * @author Ian G. Clifton
+ */
+public class FloatLabelGroup {
+
+    /**
+     * FloatLabels in this group
+     */
+    private final ArrayList<FloatLabel> mFloatLabels = new ArrayList<FloatLabel>();
+
+    /**
+     * True between beginTransaction and commit
+     */
+    private boolean mInTransaction;
+
+    /**
+     * Adds a FloatLabel to this group
+     *
+     * @param floatLabel FloatLabel to add
+     */
+    public void add(FloatLabel floatLabel) {
+        if (mFloatLabels.contains(floatLabel)) {
+            return;
+        }
+        mFloatLabels.add(floatLabel);
+        if (mInTransaction) {
+            floatLabel.beginBatch();
+        }
+    }
+
+    /**
+     * Adds every FloatLabel within the given ViewGroup to this group
+     *
+     * @param parent ViewGroup to search
+     */
+    public void addAll(ViewGroup parent) {
+        final int count = parent.getChildCount();
+        for (int i = 0; i < count; i++) {
+            final View child = parent.getChildAt(i);
+            if (child instanceof FloatLabel) {
+                add((FloatLabel) child);
+            } else if (child instanceof ViewGroup) {
+                addAll((ViewGroup) child);
+            }
+        }
+    }
+
+    /**
+     * Removes a FloatLabel from this group, applying its pending updates if a transaction is
+     * in progress
+     *
+     * @param floatLabel FloatLabel to remove
+     */
+    public void remove(FloatLabel floatLabel) {
+        if (mFloatLabels.remove(floatLabel) && mInTransaction) {
+            floatLabel.endBatch();
+        }
+    }
+
+    /**
+     * Starts deferring label updates and layout requests for every FloatLabel in this group
+     *
+     * @throws IllegalStateException if a transaction is already in progress
+     */
+    public void beginTransaction() {
+        if (mInTransaction) {
+            throw new IllegalStateException("A transaction is already in progress");
+        }
+        mInTransaction = true;
+        final int size = mFloatLabels.size();
+        for (int i = 0; i < size; i++) {
+            mFloatLabels.get(i).beginBatch();
+        }
+    }
+
+    /**
+     * Applies the final label state of every FloatLabel in this group and requests layout once
+     * for each one that asked for layout during the transaction
+     *
+     * @throws IllegalStateException if no transaction is in progress
+     */
+    public void commit() {
+        if (!mInTransaction) {
+            throw new IllegalStateException("No transaction is in progress");
+        }
+        mInTransaction = false;
+        final int size = mFloatLabels.size();
+        for (int i = 0; i < size; i++) {
+            mFloatLabels.get(i).endBatch();
+        }
+    }
+
+    /**
+     * Sets the text of the FloatLabels in this group in a single transaction
+     *
+     * @param textById SparseArray of text keyed by FloatLabel ID; FloatLabels with other IDs are left alone
+     */
+    public void setText(SparseArray<CharSequence> textById) {
+        final boolean ownTransaction = !mInTransaction;
+        if (ownTransaction) {
+            beginTransaction();
+        }
+        final int size = mFloatLabels.size();
+        for (int i = 0; i < size; i++) {
+            final FloatLabel floatLabel = mFloatLabels.get(i);
+            final int index = textById.indexOfKey(floatLabel.getId());
+            if (index >= 0) {
+                floatLabel.setText(textById.valueAt(index));
+            }
+        }
+        if (ownTransaction) {
+            commit();
+        }
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright (C) 2014 Ian G. Clifton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iangclifton.android.floatlabel;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.text.TextWatcher;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates FloatLabels ahead of time so that opening a form does not pay for creating all of
+ * its fields in one frame.<br>
+ * <br>
+ * Call {@link #warm(int)} before the form is needed, such as when the previous screen is
+ * shown. FloatLabels are created from the Builder one at a time on the main thread whenever
+ * it is idle, so each creation fits between frames instead of all of them landing in the
+ * frame that opens the form. Creating them on a background thread instead can be enabled
+ * with {@link #setBackgroundCreationEnabled(boolean)}. When the form is built,
+ * {@link #obtain()} returns a warmed FloatLabel, or builds one right away if none is left,
+ * and each one is given its label and text with
+ * {@link FloatLabel#bind(CharSequence, CharSequence, TextWatcher)}.<br>
+ * <br>
+ * The pool holds at most maxSize FloatLabels, which keep a reference to the Builder's Context,
+ * so use one pool per screen and {@link #clear()} it when the screen goes away. The Builder
+ * must not be changed once the pool is created. Apart from the constructor, methods must be
+ * called on the main thread.
+ *
+ * @author Ian G. Clifton
+ */
+public class FloatLabelPool {
+    private static final String TAG = "FloatLabelPool";
+
+    /**
+     * Background thread shared by all pools; created when first needed
+     */
+    private static ExecutorService sExecutor;
+
+    private final FloatLabel.Builder mBuilder;
+    private final int mMaxSize;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Warmed FloatLabels; guarded by this
+     */
+    private final ArrayList<FloatLabel> mPool;
+
+    /**
+     * Number of FloatLabels still to create for the last warm; guarded by this
+     */
+    private int mToCreate;
+
+    /**
+     * True while a background task or idle handler is creating FloatLabels; guarded by this
+     */
+    private boolean mCreating;
+
+    /**
+     * True if FloatLabels should be created on the background thread
+     */
+    private volatile boolean mBackgroundCreation;
+
+    /**
+     * True once creating a FloatLabel on the background thread has failed
+     */
+    private volatile boolean mBackgroundCreationFailed;
+
+    /**
+     * True while FloatLabels are being created in idle handlers rather than in the background
+     */
+    private volatile boolean mCreatingWhenIdle;
+
+    private int mHitCount;
+    private int mMissCount;
+
+    private final Runnable mBackgroundCreator = new Runnable() {
+        @Override
+        public void run() {
+            // Background thread
+            while (startCreating()) {
+                final FloatLabel floatLabel;
+                try {
+                    floatLabel = mBuilder.build();
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Unable to create FloatLabels in the background; creating them when idle instead", e);
+                    mBackgroundCreationFailed = true;
+                    mCreatingWhenIdle = true;
+                    synchronized (FloatLabelPool.this) {
+                        mToCreate++;
+                    }
+                    mHandler.post(mIdleScheduler);
+                    return;
+                }
+                finishCreating(floatLabel);
+            }
+        }
+    };
+
+    private final MessageQueue.IdleHandler mIdleCreator = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            // Main thread, between frames
+            if (startCreating()) {
+                finishCreating(mBuilder.build());
+                // Idle handlers only run again once the queue has been busy, so the next one
+                // is added from a new message
+                mHandler.post(mIdleScheduler);
+            }
+            return false;
+        }
+    };
+
+    private final Runnable mIdleScheduler = new Runnable() {
+        @Override
+        public void run() {
+            Looper.myQueue().addIdleHandler(mIdleCreator);
+        }
+    };
+
+    /**
+     * Creates an empty pool
+     *
+     * @param builder FloatLabel.Builder to create the FloatLabels with
+     * @param maxSize int most FloatLabels to keep
+     */
+    public FloatLabelPool(FloatLabel.Builder builder, int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        mBuilder = builder;
+        mMaxSize = maxSize;
+        mPool = new ArrayList<FloatLabel>(maxSize);
+    }
+
+    /**
+     * Sets whether FloatLabels are created on a background thread instead of in idle time on
+     * the main thread. This is off by default because Views are not meant to be created off
+     * the main thread, and thread-affinity problems usually do not throw. It has the same
+     * restrictions as the support library's AsyncLayoutInflater: the Builder's Context and any
+     * custom layout must only contain Views that do not create Handlers or otherwise call
+     * Looper.myLooper() when constructed, and nothing they use while being created may assume
+     * the main thread. If creating a FloatLabel in the background throws, the pool goes back
+     * to creating them in idle time.
+     *
+     * @param enabled boolean true to create FloatLabels on a background thread
+     */
+    public void setBackgroundCreationEnabled(boolean enabled) {
+        mBackgroundCreation = enabled;
+    }
+
+    /**
+     * Starts creating FloatLabels until the given number are ready, up to the maximum size.
+     * This returns right away.
+     *
+     * @param count int number of FloatLabels to have ready
+     */
+    public void warm(int count) {
+        synchronized (this) {
+            mToCreate = Math.min(count, mMaxSize) - mPool.size();
+            if (mToCreate <= 0 || mCreating) {
+                return;
+            }
+            mCreating = true;
+        }
+        if (mBackgroundCreation && !mBackgroundCreationFailed) {
+            mCreatingWhenIdle = false;
+            getExecutor().execute(mBackgroundCreator);
+        } else {
+            mCreatingWhenIdle = true;
+            mIdleScheduler.run();
+        }
+    }
+
+    /**
+     * Returns a warmed FloatLabel or creates one now if none is ready. The FloatLabel has the
+     * Builder's label and text until it is bound.
+     *
+     * @return FloatLabel that is not attached to a parent
+     */
+    public FloatLabel obtain() {
+        synchronized (this) {
+            final int size = mPool.size();
+            if (size > 0) {
+                mHitCount++;
+                return mPool.remove(size - 1);
+            }
+            mMissCount++;
+        }
+        return mBuilder.build();
+    }
+
+    /**
+     * Returns the number of warmed FloatLabels ready to be obtained
+     *
+     * @return int number of FloatLabels in the pool
+     */
+    public synchronized int getSize() {
+        return mPool.size();
+    }
+
+    /**
+     * Returns the most FloatLabels the pool keeps
+     *
+     * @return int maximum size
+     */
+    public int getMaxSize() {
+        return mMaxSize;
+    }
+
+    /**
+     * Returns the number of calls to {@link #obtain()} that got a warmed FloatLabel
+     *
+     * @return int hit count
+     */
+    public synchronized int getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * Returns the number of calls to {@link #obtain()} that had to create a FloatLabel
+     *
+     * @return int miss count
+     */
+    public synchronized int getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * Removes all warmed FloatLabels, stops creating more and resets the counters
+     */
+    public void clear() {
+        Looper.myQueue().removeIdleHandler(mIdleCreator);
+        mHandler.removeCallbacks(mIdleScheduler);
+        synchronized (this) {
+            mPool.clear();
+            mToCreate = 0;
+            mHitCount = 0;
+            mMissCount = 0;
+            if (mCreatingWhenIdle) {
+                // The removed idle handler will not run again; a background task stops itself
+                mCreating = false;
+            }
+        }
+    }
+
+    /**
+     * Reserves the next FloatLabel to create
+     *
+     * @return true if one should be created; false once the pool is full or warmed
+     */
+    private synchronized boolean startCreating() {
+        if (mToCreate <= 0 || mPool.size() >= mMaxSize) {
+            mToCreate = 0;
+            mCreating = false;
+            return false;
+        }
+        mToCreate--;
+        return true;
+    }
+
+    /**
+     * Adds a newly created FloatLabel unless the pool filled up in the meantime
+     *
+     * @param floatLabel FloatLabel to add
+     */
+    private synchronized void finishCreating(FloatLabel floatLabel) {
+        if (mPool.size() < mMaxSize) {
+            mPool.add(floatLabel);
+        }
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (sExecutor == null) {
+            sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    final Thread thread = new Thread(r, TAG);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sExecutor;
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2014 Ian G. Clifton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iangclifton.android.floatlabel;
+
+import android.text.Editable;
+import android.text.InputFilter;
+import android.text.Selection;
+import android.text.Spanned;
+import android.text.TextWatcher;
+
+/**
+ * InputFilter and TextWatcher that formats text to a fixed mask as it is typed.<br>
+ * <br>
+ * In the mask, '#' accepts a digit, 'A' accepts a letter, '*' accepts any character and
+ * anything else is a literal that is inserted automatically. For example,
+ * "(###) ###-####" turns typing "5551234567" into "(555) 123-4567".<br>
+ * <br>
+ * After every edit, including deletions and edits in the middle of the text, the whole text
+ * is formatted again from the characters in its slots, so the characters after the edit
+ * move to the slots they now fall in. Deleting only literals, such as with backspace just
+ * after ") ", deletes the character before them. The cursor is kept after the same entered
+ * character.<br>
+ * <br>
+ * When the formatted text only differs from the old text within the edited range, as when
+ * typing at the end, the filter applies it in the same edit, so TextWatchers (including the
+ * FloatLabel's own) fire once per keystroke. Otherwise the edit is let through and the text
+ * is replaced with the formatted text from afterTextChanged. Nothing is allocated when the
+ * input already fits the mask. {@link FloatLabel#setInputMask(InputMask)} adds the mask as
+ * both a filter and a TextWatcher; to use it with another EditText, do the same.
+ *
+ * @author Ian G. Clifton
+ */
+public class InputMask implements InputFilter, TextWatcher {
+    /*package*/ static final char DIGIT = '#';
+    /*package*/ static final char LETTER = 'A';
+    /*package*/ static final char ANY = '*';
+
+    private final String mMask;
+
+    /**
+     * Reused for the formatted output; filter is only called on the main thread
+     */
+    private final StringBuilder mBuilder;
+
+    /**
+     * Formatted text to replace the whole text with in afterTextChanged, or null
+     */
+    private String mPendingText;
+
+    /**
+     * Where to put the cursor in afterTextChanged, or -1 to leave it
+     */
+    private int mPendingCursor = -1;
+
+    /**
+     * True while the formatted text is being applied, so that it is not filtered again
+     */
+    private boolean mApplying;
+
+    /**
+     * Creates an InputMask
+     *
+     * @param mask String mask such as "##/##/####"
+     */
+    public InputMask(String mask) {
+        if (mask == null || mask.length() == 0) {
+            throw new IllegalArgumentException("The mask must not be empty");
+        }
+        mMask = mask;
+        mBuilder = new StringBuilder(mask.length());
+    }
+
+    /**
+     * Returns the mask
+     *
+     * @return String mask
+     */
+    public String getMask() {
+        return mMask;
+    }
+
+    @Override
+    public CharSequence filter(CharSequence source, int start, int end, Spanned dest, int dstart, int dend) {
+        mPendingText = null;
+        mPendingCursor = -1;
+        if (mApplying) {
+            return null;
+        }
+
+        final int cursor = format(source, start, end, dest, dstart, dend);
+        final StringBuilder out = mBuilder;
+        final int suffixLength = dest.length() - dend;
+        final int middleEnd = out.length() - suffixLength;
+        if (middleEnd < dstart || !regionMatches(out, 0, dest, 0, dstart)
+                || !regionMatches(out, middleEnd, dest, dend, suffixLength)) {
+            // Text outside of the edit changes too, so it is replaced once the edit is done
+            mPendingText = out.toString();
+            mPendingCursor = cursor;
+            return null;
+        }
+
+        if (cursor != middleEnd) {
+            mPendingCursor = cursor;
+        }
+        if (middleEnd - dstart == end - start && regionMatches(out, dstart, source, start, end - start)) {
+            // Keep the source, including any spans
+            return null;
+        }
+        return out.subSequence(dstart, middleEnd);
+    }
+
+    /**
+     * Formats the text as it will be after the edit into mBuilder, taking the characters in
+     * the slots before and after the edited range along with the inserted ones
+     *
+     * @return int index in the formatted text just after the inserted characters
+     */
+    private int format(CharSequence source, int start, int end, Spanned dest, int dstart, int dend) {
+        final String mask = mMask;
+        final int maskLength = mask.length();
+        final int destEnd = Math.min(dest.length(), maskLength);
+        final int before = Math.min(dstart, destEnd);
+
+        // Deleting only literals deletes the character in the slot before them instead
+        int dropped = -1;
+        if (start == end && !hasSlot(dstart, Math.min(dend, maskLength))) {
+            for (int i = before - 1; i >= 0; i--) {
+                if (!isLiteral(mask.charAt(i))) {
+                    dropped = i;
+                    break;
+                }
+            }
+        }
+
+        final StringBuilder out = mBuilder;
+        out.setLength(0);
+        for (int i = 0; i < before; i++) {
+            if (i != dropped && !isLiteral(mask.charAt(i))) {
+                append(dest.charAt(i), false);
+            }
+        }
+        for (int i = start; i < end; i++) {
+            append(source.charAt(i), true);
+        }
+        final int cursor = out.length();
+        for (int i = Math.max(dend, 0); i < destEnd; i++) {
+            if (!isLiteral(mask.charAt(i))) {
+                append(dest.charAt(i), false);
+            }
+        }
+        return cursor;
+    }
+
+    /**
+     * Appends a character to mBuilder in the next slot, inserting the literals before it. A
+     * typed character that is one of those literals is taken as that literal. Characters the
+     * slot does not accept and characters past the end of the mask are dropped.
+     *
+     * @param c char to append
+     * @param typed boolean true if the character was just entered
+     */
+    private void append(char c, boolean typed) {
+        final StringBuilder out = mBuilder;
+        final int maskLength = mMask.length();
+        while (out.length() < maskLength) {
+            final char m = mMask.charAt(out.length());
+            if (!isLiteral(m)) {
+                if (accepts(m, c)) {
+                    out.append(c);
+                }
+                return;
+            }
+            out.append(m);
+            if (typed && c == m) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns true if the mask has a slot between start (inclusive) and end (exclusive)
+     */
+    private boolean hasSlot(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!isLiteral(mMask.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean regionMatches(CharSequence a, int aStart, CharSequence b, int bStart, int length) {
+        for (int i = 0; i < length; i++) {
+            if (a.charAt(aStart + i) != b.charAt(bStart + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+    }
+
+    @Override
+    public void onTextChanged(CharSequence s, int start, int before, int count) {
+    }
+
+    @Override
+    public void afterTextChanged(Editable s) {
+        if (mApplying) {
+            return;
+        }
+        final String text = mPendingText;
+        final int cursor = mPendingCursor;
+        mPendingText = null;
+        mPendingCursor = -1;
+        if (text != null) {
+            // Only replace what differs so that the spans around it are kept
+            final int length = s.length();
+            int prefix = 0;
+            final int maxPrefix = Math.min(length, text.length());
+            while (prefix < maxPrefix && s.charAt(prefix) == text.charAt(prefix)) {
+                prefix++;
+            }
+            int suffix = 0;
+            final int maxSuffix = maxPrefix - prefix;
+            while (suffix < maxSuffix && s.charAt(length - 1 - suffix) == text.charAt(text.length() - 1 - suffix)) {
+                suffix++;
+            }
+            mApplying = true;
+            try {
+                s.replace(prefix, length - suffix, text, prefix, text.length() - suffix);
+            } finally {
+                mApplying = false;
+            }
+        }
+        if (cursor >= 0 && cursor <= s.length() && Selection.getSelectionEnd(s) != cursor) {
+            Selection.setSelection(s, cursor);
+        }
+    }
+
+    /**
+     * Returns the characters of the text that fill the mask's slots, dropping the literals
+     *
+     * @param text CharSequence formatted with this mask
+     * @return String of the entered characters
+     */
+    public String unmask(CharSequence text) {
+        final int length = Math.min(text.length(), mMask.length());
+        final StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            if (!isLiteral(mMask.charAt(i))) {
+                sb.append(text.charAt(i));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean isLiteral(char m) {
+        return m != DIGIT && m != LETTER && m != ANY;
+    }
+
+    private static boolean accepts(char m, char c) {
+        switch (m) {
+            case DIGIT:
+                return Character.isDigit(c);
+            case LETTER:
+                return Character.isLetter(c);
+            default:
+                return true;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2014 Ian G. Clifton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iangclifton.android.floatlabel;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.WindowManager;
+
+/**
+ * Records frame timings with Choreographer while a FloatLabel's label animates.<br>
+ * <br>
+ * Because any LabelAnimator can be in use, and it may animate to any alpha, the animation is
+ * considered finished once the label's alpha, position and scale have not changed for a few
+ * frames in a row. The frames spent waiting for that are not reported. One instance is
+ * reused for every animation of a FloatLabel.
+ *
+ * @author Ian G. Clifton
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+/*package*/ class LabelAnimationMonitor implements Choreographer.FrameCallback {
+
+    /**
+     * Animations still running after this long are reported as finished
+     */
+    private static final long TIMEOUT_NANOS = 2000000000L;
+
+    /**
+     * Frames in a row without a property change after which the animation is finished
+     */
+    private static final int SETTLE_FRAMES = 3;
+
+    private final FloatLabel mFloatLabel;
+    private final FloatLabel.LabelAnimationStatsListener mListener;
+    private final long mFrameIntervalNanos;
+
+    private View mLabel;
+    private boolean mRunning;
+    private boolean mDisplaying;
+    private long mStartNanos;
+    private long mLastFrameNanos;
+    private int mFrameCount;
+    private int mMissedFrames;
+    private long mLongestFrameNanos;
+    private int mUnchangedFrames;
+    private long mLastChangeNanos;
+    private int mChangedFrameCount;
+    private int mChangedMissedFrames;
+    private long mChangedLongestFrameNanos;
+    private float mLastAlpha;
+    private float mLastX;
+    private float mLastY;
+    private float mLastScaleX;
+    private float mLastScaleY;
+
+    LabelAnimationMonitor(FloatLabel floatLabel, FloatLabel.LabelAnimationStatsListener listener) {
+        mFloatLabel = floatLabel;
+        mListener = listener;
+        final WindowManager windowManager = (WindowManager) floatLabel.getContext().getSystemService(Context.WINDOW_SERVICE);
+        float refreshRate = windowManager.getDefaultDisplay().getRefreshRate();
+        if (refreshRate < 1) {
+            refreshRate = 60;
+        }
+        mFrameIntervalNanos = (long) (1000000000L / refreshRate);
+    }
+
+    /**
+     * Starts tracking a label animation, reporting any animation it interrupts
+     *
+     * @param label View being animated
+     * @param displaying boolean true if the label is being shown; false if hidden
+     */
+    void start(View label, boolean displaying) {
+        if (mRunning) {
+            finish();
+        }
+        mLabel = label;
+        mDisplaying = displaying;
+        mRunning = true;
+        mStartNanos = System.nanoTime();
+        mLastFrameNanos = 0;
+        mFrameCount = 0;
+        mMissedFrames = 0;
+        mLongestFrameNanos = 0;
+        mUnchangedFrames = 0;
+        mLastChangeNanos = 0;
+        storeProperties();
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * Stops tracking without reporting, such as when the FloatLabel is detached
+     */
+    void stop() {
+        if (mRunning) {
+            mRunning = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!mRunning) {
+            return;
+        }
+        if (mLastFrameNanos != 0) {
+            final long frameNanos = frameTimeNanos - mLastFrameNanos;
+            mFrameCount++;
+            if (frameNanos > mLongestFrameNanos) {
+                mLongestFrameNanos = frameNanos;
+            }
+            // A frame that took about two intervals means one frame was missed
+            final long intervals = (frameNanos + mFrameIntervalNanos / 2) / mFrameIntervalNanos;
+            if (intervals > 1) {
+                mMissedFrames += intervals - 1;
+            }
+        }
+        mLastFrameNanos = frameTimeNanos;
+
+        if (storeProperties()) {
+            // Remember the stats as of this frame in case it turns out to be the last change
+            mUnchangedFrames = 0;
+            mLastChangeNanos = frameTimeNanos;
+            mChangedFrameCount = mFrameCount;
+            mChangedMissedFrames = mMissedFrames;
+            mChangedLongestFrameNanos = mLongestFrameNanos;
+        } else {
+            mUnchangedFrames++;
+        }
+        if (mUnchangedFrames >= SETTLE_FRAMES) {
+            if (mLastChangeNanos != 0) {
+                // Leave out the frames spent waiting to see that nothing changed
+                mLastFrameNanos = mLastChangeNanos;
+                mFrameCount = mChangedFrameCount;
+                mMissedFrames = mChangedMissedFrames;
+                mLongestFrameNanos = mChangedLongestFrameNanos;
+            }
+            finish();
+        } else if (frameTimeNanos - mStartNanos > TIMEOUT_NANOS) {
+            finish();
+        } else {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    /**
+     * Reports the animation being tracked
+     */
+    private void finish() {
+        stop();
+        final long durationNanos = (mLastFrameNanos == 0 ? System.nanoTime() : mLastFrameNanos) - mStartNanos;
+        mListener.onLabelAnimationFinished(mFloatLabel, mDisplaying, mFrameCount, mMissedFrames,
+                mLongestFrameNanos, Math.max(0, durationNanos));
+    }
+
+    /**
+     * Stores the label's animated properties
+     *
+     * @return true if any of them changed since they were last stored
+     */
+    private boolean storeProperties() {
+        final View label = mLabel;
+        final boolean changed = label.getAlpha() != mLastAlpha || label.getX() != mLastX
+                || label.getY() != mLastY || label.getScaleX() != mLastScaleX
+                || label.getScaleY() != mLastScaleY;
+        mLastAlpha = label.getAlpha();
+        mLastX = label.getX();
+        mLastY = label.getY();
+        mLastScaleX = label.getScaleX();
+        mLastScaleY = label.getScaleY();
+        return changed;
+    }
+}
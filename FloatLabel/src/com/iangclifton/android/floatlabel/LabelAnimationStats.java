@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2014 Ian G. Clifton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iangclifton.android.floatlabel;
+
+/**
+ * LabelAnimationStatsListener that adds up the frame statistics of every label animation it
+ * is given. One instance can be shared by all the FloatLabels in an app and read
+ * periodically, such as to report to telemetry.
+ *
+ * @author Ian G. Clifton
+ */
+public class LabelAnimationStats implements FloatLabel.LabelAnimationStatsListener {
+
+    private int mAnimationCount;
+    private int mJankyAnimationCount;
+    private long mFrameCount;
+    private long mMissedFrames;
+    private long mLongestFrameNanos;
+
+    @Override
+    public synchronized void onLabelAnimationFinished(FloatLabel floatLabel, boolean displayed, int frameCount,
+            int missedFrames, long longestFrameNanos, long durationNanos) {
+        mAnimationCount++;
+        if (missedFrames > 0) {
+            mJankyAnimationCount++;
+        }
+        mFrameCount += frameCount;
+        mMissedFrames += missedFrames;
+        mLongestFrameNanos = Math.max(mLongestFrameNanos, longestFrameNanos);
+    }
+
+    /**
+     * @return number of label animations recorded
+     */
+    public synchronized int getAnimationCount() {
+        return mAnimationCount;
+    }
+
+    /**
+     * @return number of label animations that missed at least one frame
+     */
+    public synchronized int getJankyAnimationCount() {
+        return mJankyAnimationCount;
+    }
+
+    /**
+     * @return total number of frames drawn during label animations
+     */
+    public synchronized long getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * @return total number of frames missed during label animations
+     */
+    public synchronized long getMissedFrames() {
+        return mMissedFrames;
+    }
+
+    /**
+     * @return duration of the longest frame seen in nanoseconds
+     */
+    public synchronized long getLongestFrameNanos() {
+        return mLongestFrameNanos;
+    }
+
+    /**
+     * Clears all counters, such as after they have been reported
+     */
+    public synchronized void reset() {
+        mAnimationCount = 0;
+        mJankyAnimationCount = 0;
+        mFrameCount = 0;
+        mMissedFrames = 0;
+        mLongestFrameNanos = 0;
+    }
+}
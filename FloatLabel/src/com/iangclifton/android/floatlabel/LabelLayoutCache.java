@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2014 Ian G. Clifton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iangclifton.android.floatlabel;
+
+import android.graphics.Typeface;
+import android.text.Layout;
+import android.text.Spanned;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.util.LruCache;
+
+/**
+ * Process-wide LRU cache of the Layouts used to draw flattened labels.<br>
+ * <br>
+ * In lists of forms, the same few labels are drawn by every row, so each distinct label,
+ * text appearance and width is only laid out once. Labels with spans are not cached. The
+ * cache is only used from the main thread.
+ *
+ * @author Ian G. Clifton
+ */
+public final class LabelLayoutCache {
+
+    /**
+     * Maximum number of Layouts kept
+     */
+    private static final int MAX_ENTRIES = 64;
+
+    private static final LruCache<Key, StaticLayout> sCache = new LruCache<Key, StaticLayout>(MAX_ENTRIES);
+
+    /**
+     * Reused for lookups so that hits do not allocate
+     */
+    private static final Key sProbe = new Key();
+
+    private static int sHitCount;
+    private static int sMissCount;
+
+    private LabelLayoutCache() {
+        // Static methods only
+    }
+
+    /**
+     * Returns a Layout of the text, creating and caching it if needed. The returned Layout
+     * has its own TextPaint, which callers may recolor right before drawing.
+     *
+     * @param text CharSequence to lay out
+     * @param paint TextPaint with the text size, typeface and flags to use
+     * @param width int width of the Layout
+     * @return StaticLayout of the text
+     */
+    /*package*/ static StaticLayout get(CharSequence text, TextPaint paint, int width) {
+        if (text instanceof Spanned) {
+            sMissCount++;
+            return createLayout(text, paint, width);
+        }
+
+        final Key probe = sProbe;
+        probe.set(text, paint, width);
+        StaticLayout layout = sCache.get(probe);
+        if (layout != null) {
+            sHitCount++;
+            return layout;
+        }
+        sMissCount++;
+        final Key key = new Key();
+        key.set(text.toString(), paint, width);
+        layout = createLayout(key.mText, paint, width);
+        sCache.put(key, layout);
+        return layout;
+    }
+
+    private static StaticLayout createLayout(CharSequence text, TextPaint paint, int width) {
+        return new StaticLayout(text, new TextPaint(paint), width, Layout.Alignment.ALIGN_NORMAL, 1f, 0f, true);
+    }
+
+    /**
+     * Returns the number of lookups that reused a cached Layout
+     *
+     * @return int hit count
+     */
+    public static int getHitCount() {
+        return sHitCount;
+    }
+
+    /**
+     * Returns the number of lookups that had to create a Layout
+     *
+     * @return int miss count
+     */
+    public static int getMissCount() {
+        return sMissCount;
+    }
+
+    /**
+     * Removes all cached Layouts and resets the counters
+     */
+    public static void clear() {
+        sCache.evictAll();
+        sHitCount = 0;
+        sMissCount = 0;
+    }
+
+    /**
+     * Text, paint attributes and width of a Layout
+     */
+    private static final class Key {
+        private CharSequence mText;
+        private float mTextSize;
+        private Typeface mTypeface;
+        private float mTextScaleX;
+        private float mTextSkewX;
+        private int mFlags;
+        private int mWidth;
+        private int mHashCode;
+
+        void set(CharSequence text, TextPaint paint, int width) {
+            mText = text;
+            mTextSize = paint.getTextSize();
+            mTypeface = paint.getTypeface();
+            mTextScaleX = paint.getTextScaleX();
+            mTextSkewX = paint.getTextSkewX();
+            mFlags = paint.getFlags();
+            mWidth = width;
+
+            // Same as String.hashCode, without needing a String
+            int textHash = 0;
+            for (int i = 0, length = text.length(); i < length; i++) {
+                textHash = 31 * textHash + text.charAt(i);
+            }
+            int hashCode = textHash;
+            hashCode = 31 * hashCode + Float.floatToIntBits(mTextSize);
+            hashCode = 31 * hashCode + (mTypeface == null ? 0 : mTypeface.hashCode());
+            hashCode = 31 * hashCode + Float.floatToIntBits(mTextScaleX);
+            hashCode = 31 * hashCode + Float.floatToIntBits(mTextSkewX);
+            hashCode = 31 * hashCode + mFlags;
+            hashCode = 31 * hashCode + width;
+            mHashCode = hashCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return mHashCode == other.mHashCode && mWidth == other.mWidth && mFlags == other.mFlags
+                    && mTextSize == other.mTextSize && mTextScaleX == other.mTextScaleX
+                    && mTextSkewX == other.mTextSkewX && mTypeface == other.mTypeface
+                    && contentEquals(mText, other.mText);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+
+        private static boolean contentEquals(CharSequence a, CharSequence b) {
+            final int length = a.length();
+            if (length != b.length()) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (a.charAt(i) != b.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
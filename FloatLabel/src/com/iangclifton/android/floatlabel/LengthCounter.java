@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2014 Ian G. Clifton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iangclifton.android.floatlabel;
+
+import java.text.BreakIterator;
+
+/**
+ * Keeps the number of code points and graphemes in a text up to date from TextWatcher
+ * deltas.<br>
+ * <br>
+ * Before each change, the counts of a window around the edited range are taken, and after
+ * the change the same window (resized by the edit) is counted again. The window is widened
+ * by two graphemes on each side because an edit can join or split the graphemes next to it
+ * (such as inserting a zero-width joiner between two emoji), and first to the ends of any
+ * run of regional indicators it touches, because flags pair up from the start of the run and
+ * one inserted or removed indicator changes every pair after it. The cost of a keystroke
+ * depends on the size of the edit rather than the size of the text, except within long runs
+ * of flags.<br>
+ * <br>
+ * Graphemes are whatever the platform's {@link BreakIterator} returns. Before Android 7.0 it
+ * splits emoji zero-width joiner sequences and flags, so those count as several graphemes
+ * there.
+ *
+ * @author Ian G. Clifton
+ */
+/*package*/ final class LengthCounter {
+
+    /**
+     * Characters of context after the window given to the BreakIterator
+     */
+    private static final int CONTEXT = 32;
+
+    private final BreakIterator mBreakIterator = BreakIterator.getCharacterInstance();
+
+    private int mCodePoints;
+    private int mGraphemes;
+
+    /**
+     * Window counted in beforeTextChanged, in the old text
+     */
+    private int mWindowStart;
+    private int mWindowEnd;
+    private int mWindowCodePoints;
+    private int mWindowGraphemes;
+    private boolean mChangePending;
+
+    /**
+     * Counts the whole text
+     *
+     * @param text CharSequence to count
+     */
+    public void reset(CharSequence text) {
+        mChangePending = false;
+        mCodePoints = Character.codePointCount(text, 0, text.length());
+        mGraphemes = countGraphemes(text, 0, text.length());
+    }
+
+    public int getCodePointCount() {
+        return mCodePoints;
+    }
+
+    public int getGraphemeCount() {
+        return mGraphemes;
+    }
+
+    /**
+     * Counts the window around the range that is about to be replaced
+     *
+     * @param s CharSequence before the change
+     * @param start int start of the range being replaced
+     * @param count int length of the range being replaced
+     */
+    public void beforeTextChanged(CharSequence s, int start, int count) {
+        final int length = s.length();
+        final int runStart = regionalIndicatorRunStart(s, start);
+        final int runEnd = regionalIndicatorRunEnd(s, start + count);
+        final int contextStart = Math.max(0, runStart - CONTEXT);
+        final int contextEnd = Math.min(length, runEnd + CONTEXT);
+        final BreakIterator bi = mBreakIterator;
+        bi.setText(s.subSequence(contextStart, contextEnd).toString());
+
+        int windowStart = runStart - contextStart;
+        for (int i = 0; i < 2 && windowStart > 0; i++) {
+            windowStart = bi.preceding(windowStart);
+        }
+        int windowEnd = runEnd - contextStart;
+        final int last = contextEnd - contextStart;
+        for (int i = 0; i < 2 && windowEnd < last; i++) {
+            windowEnd = bi.following(windowEnd);
+        }
+
+        // The context may have started within an earlier run, so only its start is trusted
+        mWindowStart = regionalIndicatorRunStart(s, contextStart + windowStart);
+        mWindowEnd = contextStart + windowEnd;
+        mWindowCodePoints = Character.codePointCount(s, mWindowStart, mWindowEnd);
+        mWindowGraphemes = countGraphemes(s, mWindowStart, mWindowEnd);
+        mChangePending = true;
+    }
+
+    /**
+     * Recounts the window after the change and applies the difference
+     *
+     * @param s CharSequence after the change
+     * @param before int length of the replaced range
+     * @param count int length of the new text
+     */
+    public void onTextChanged(CharSequence s, int before, int count) {
+        if (!mChangePending) {
+            reset(s);
+            return;
+        }
+        mChangePending = false;
+        final int windowEnd = mWindowEnd + count - before;
+        mCodePoints += Character.codePointCount(s, mWindowStart, windowEnd) - mWindowCodePoints;
+        mGraphemes += countGraphemes(s, mWindowStart, windowEnd) - mWindowGraphemes;
+    }
+
+    /**
+     * Returns the start of the run of regional indicators that ends at index, or index if the
+     * code point before it is not one
+     */
+    private static int regionalIndicatorRunStart(CharSequence s, int index) {
+        while (index > 0 && isRegionalIndicator(Character.codePointBefore(s, index))) {
+            index -= 2;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the end of the run of regional indicators that starts at index, or index if the
+     * code point at it is not one
+     */
+    private static int regionalIndicatorRunEnd(CharSequence s, int index) {
+        final int length = s.length();
+        while (index < length && isRegionalIndicator(Character.codePointAt(s, index))) {
+            index += 2;
+        }
+        return index;
+    }
+
+    private static boolean isRegionalIndicator(int codePoint) {
+        return codePoint >= 0x1F1E6 && codePoint <= 0x1F1FF;
+    }
+
+    /**
+     * Counts the graphemes from start to end, treating start as a boundary
+     */
+    private int countGraphemes(CharSequence s, int start, int end) {
+        if (start == end) {
+            return 0;
+        }
+        final int contextEnd = Math.min(s.length(), end + CONTEXT);
+        final BreakIterator bi = mBreakIterator;
+        bi.setText(s.subSequence(start, contextEnd).toString());
+        final int limit = end - start;
+        int graphemes = 0;
+        int position = 0;
+        while (position < limit && position != BreakIterator.DONE) {
+            position = bi.following(position);
+            graphemes++;
+        }
+        return graphemes;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2014 Ian G. Clifton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iangclifton.android.floatlabel;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * Immutable, case-insensitive prefix index over a set of Strings.<br>
+ * <br>
+ * Entries are kept in two parallel arrays sorted by their lowercase form, so all entries
+ * that start with a given prefix are one contiguous range found with two binary searches.
+ * A {@link Cursor} narrows the previous range as the prefix grows, which is what typing
+ * does, so each keystroke only searches the entries that matched the keystroke before it.
+ * Building the index sorts the entries, so large indexes should be built off the main
+ * thread.
+ *
+ * @author Ian G. Clifton
+ */
+public final class PrefixIndex {
+
+    /**
+     * Lowercase keys in sorted order
+     */
+    private final String[] mKeys;
+
+    /**
+     * Original entries in the same order as mKeys
+     */
+    private final String[] mValues;
+
+    /**
+     * Creates an index of the given entries
+     *
+     * @param entries Collection of Strings to index
+     */
+    public PrefixIndex(Collection<String> entries) {
+        this(entries.toArray(new String[entries.size()]));
+    }
+
+    /**
+     * Creates an index of the given entries. The array is not modified.
+     *
+     * @param entries array of Strings to index
+     */
+    public PrefixIndex(String[] entries) {
+        final int count = entries.length;
+        final String[][] pairs = new String[count][];
+        for (int i = 0; i < count; i++) {
+            pairs[i] = new String[] {entries[i].toLowerCase(Locale.ROOT), entries[i]};
+        }
+        Arrays.sort(pairs, new Comparator<String[]>() {
+            @Override
+            public int compare(String[] lhs, String[] rhs) {
+                return lhs[0].compareTo(rhs[0]);
+            }
+        });
+        mKeys = new String[count];
+        mValues = new String[count];
+        for (int i = 0; i < count; i++) {
+            mKeys[i] = pairs[i][0];
+            mValues[i] = pairs[i][1];
+        }
+    }
+
+    /**
+     * Returns the number of entries
+     *
+     * @return int number of entries
+     */
+    public int size() {
+        return mValues.length;
+    }
+
+    /**
+     * Returns the entry at the given position in sorted order
+     *
+     * @param position int position from 0 to size() - 1
+     * @return String entry as it was given
+     */
+    public String get(int position) {
+        return mValues[position];
+    }
+
+    /**
+     * Returns the first position within [start, end) whose key is not less than the prefix
+     */
+    private int lowerBound(String prefix, int start, int end) {
+        while (start < end) {
+            final int mid = (start + end) >>> 1;
+            if (mKeys[mid].compareTo(prefix) < 0) {
+                start = mid + 1;
+            } else {
+                end = mid;
+            }
+        }
+        return start;
+    }
+
+    /**
+     * Returns the first position within [start, end) whose key does not start with the prefix,
+     * given that start is the lower bound of the prefix
+     */
+    private int upperBound(String prefix, int start, int end) {
+        while (start < end) {
+            final int mid = (start + end) >>> 1;
+            if (mKeys[mid].startsWith(prefix)) {
+                start = mid + 1;
+            } else {
+                end = mid;
+            }
+        }
+        return start;
+    }
+
+    /**
+     * Creates a Cursor for incremental lookups in this index
+     *
+     * @return new Cursor covering every entry
+     */
+    public Cursor newCursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Range of entries matching the last prefix looked up. A Cursor is not thread-safe, but
+     * any number of Cursors can use the same index at once.
+     */
+    public final class Cursor {
+        private String mPrefix = "";
+        private int mStart;
+        private int mEnd = mKeys.length;
+
+        private Cursor() {
+        }
+
+        /**
+         * Moves this Cursor to the entries that start with the given prefix, ignoring case.
+         * If the prefix extends the previous one, only the previous range is searched.
+         *
+         * @param prefix CharSequence prefix to look up
+         */
+        public void moveTo(CharSequence prefix) {
+            final String key = prefix == null ? "" : prefix.toString().toLowerCase(Locale.ROOT);
+            if (!key.startsWith(mPrefix)) {
+                mStart = 0;
+                mEnd = mKeys.length;
+            }
+            mPrefix = key;
+            if (key.length() == 0) {
+                mStart = 0;
+                mEnd = mKeys.length;
+                return;
+            }
+            mStart = lowerBound(key, mStart, mEnd);
+            mEnd = upperBound(key, mStart, mEnd);
+        }
+
+        /**
+         * Returns the position of the first matching entry
+         *
+         * @return int position in the index
+         */
+        public int getStart() {
+            return mStart;
+        }
+
+        /**
+         * Returns the position after the last matching entry
+         *
+         * @return int position in the index
+         */
+        public int getEnd() {
+            return mEnd;
+        }
+    }
+}
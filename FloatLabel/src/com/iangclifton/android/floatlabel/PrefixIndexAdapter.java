@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2014 Ian G. Clifton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iangclifton.android.floatlabel;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.Filter;
+import android.widget.Filterable;
+import android.widget.TextView;
+
+/**
+ * Adapter that suggests the entries of a {@link PrefixIndex} starting with the typed text.<br>
+ * <br>
+ * Filtering runs on the Filter's background thread and narrows the previous keystroke's
+ * range instead of scanning every entry, and the results are a range of the index rather
+ * than a copied list, so the cost per keystroke stays small even with 100k+ entries.
+ *
+ * @author Ian G. Clifton
+ */
+public class PrefixIndexAdapter extends BaseAdapter implements Filterable {
+
+    private final LayoutInflater mInflater;
+    private final int mResource;
+    private final PrefixIndex mIndex;
+    private final PrefixFilter mFilter;
+
+    /**
+     * Position of the first matching entry in the index
+     */
+    private int mStart;
+
+    /**
+     * Number of matching entries
+     */
+    private int mCount;
+
+    /**
+     * Creates an adapter that shows entries with simple_dropdown_item_1line
+     *
+     * @param context Context to inflate item views with
+     * @param index PrefixIndex to suggest entries from
+     */
+    public PrefixIndexAdapter(Context context, PrefixIndex index) {
+        this(context, android.R.layout.simple_dropdown_item_1line, index);
+    }
+
+    /**
+     * Creates an adapter
+     *
+     * @param context Context to inflate item views with
+     * @param resource int layout resource ID whose root is a TextView
+     * @param index PrefixIndex to suggest entries from
+     */
+    public PrefixIndexAdapter(Context context, int resource, PrefixIndex index) {
+        mInflater = LayoutInflater.from(context);
+        mResource = resource;
+        mIndex = index;
+        mFilter = new PrefixFilter();
+    }
+
+    @Override
+    public int getCount() {
+        return mCount;
+    }
+
+    @Override
+    public String getItem(int position) {
+        return mIndex.get(mStart + position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return mStart + position;
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return true;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        final TextView textView;
+        if (convertView == null) {
+            textView = (TextView) mInflater.inflate(mResource, parent, false);
+        } else {
+            textView = (TextView) convertView;
+        }
+        textView.setText(getItem(position));
+        return textView;
+    }
+
+    @Override
+    public Filter getFilter() {
+        return mFilter;
+    }
+
+    /**
+     * Filter that narrows a PrefixIndex.Cursor. Filter runs performFiltering calls one at a
+     * time on its own thread, so the Cursor is only touched by that thread.
+     */
+    private class PrefixFilter extends Filter {
+        private final PrefixIndex.Cursor mCursor = mIndex.newCursor();
+
+        @Override
+        protected FilterResults performFiltering(CharSequence constraint) {
+            mCursor.moveTo(constraint);
+            final FilterResults results = new FilterResults();
+            results.values = new int[] {mCursor.getStart(), mCursor.getEnd()};
+            results.count = mCursor.getEnd() - mCursor.getStart();
+            return results;
+        }
+
+        @Override
+        protected void publishResults(CharSequence constraint, FilterResults results) {
+            final int[] range = (int[]) results.values;
+            mStart = range[0];
+            mCount = results.count;
+            if (mCount > 0) {
+                notifyDataSetChanged();
+            } else {
+                notifyDataSetInvalidated();
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2014 Ian G. Clifton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iangclifton.android.floatlabel;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.util.AttributeSet;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.WeakHashMap;
+
+/**
+ * Cache of resolved FloatLabel attributes, so that FloatLabels declared with the same
+ * attributes, style and theme only resolve them once.<br>
+ * <br>
+ * Entries are grouped by Theme and dropped along with it. Only the attributes in
+ * R.styleable.FloatLabel take part in the key, so FloatLabels that differ only in their ID
+ * or layout parameters share an entry.<br>
+ * <br>
+ * A Theme can be changed in place, such as by Activity.setTheme, and there is no way to
+ * tell from the Theme object, so its entries are invalidated when FloatLabels are restyled
+ * with {@link FloatLabel#applyStyle(Context, int)}.
+ *
+ * @author Ian G. Clifton
+ */
+/*package*/ final class StyledAttributesCache {
+
+    /**
+     * Maximum number of distinct attribute sets kept per Theme
+     */
+    private static final int MAX_ENTRIES_PER_THEME = 32;
+
+    private static final WeakHashMap<Resources.Theme, HashMap<Key, FloatLabel.Builder>> sCache =
+            new WeakHashMap<Resources.Theme, HashMap<Key, FloatLabel.Builder>>();
+
+    private StyledAttributesCache() {
+        // Static methods only
+    }
+
+    /**
+     * Creates the key for an AttributeSet
+     *
+     * @param context Context the attributes will be resolved with
+     * @param attrs AttributeSet from the constructor
+     * @param defStyle int resource ID of style to use for defaults
+     * @return Key identifying the resolved values
+     */
+    static Key createKey(Context context, AttributeSet attrs, int defStyle) {
+        final int[] styleable = R.styleable.FloatLabel;
+        final int count = attrs.getAttributeCount();
+        int relevant = 0;
+        for (int i = 0; i < count; i++) {
+            if (Arrays.binarySearch(styleable, attrs.getAttributeNameResource(i)) >= 0) {
+                relevant++;
+            }
+        }
+
+        final int[] names = new int[relevant];
+        final String[] values = new String[relevant];
+        int index = 0;
+        for (int i = 0; i < count; i++) {
+            final int name = attrs.getAttributeNameResource(i);
+            if (Arrays.binarySearch(styleable, name) >= 0) {
+                names[index] = name;
+                values[index] = attrs.getAttributeValue(i);
+                index++;
+            }
+        }
+
+        // Resource references can resolve differently after a configuration change; copied
+        // because the Resources update their Configuration in place
+        final Configuration configuration = new Configuration(context.getResources().getConfiguration());
+        return new Key(defStyle, attrs.getStyleAttribute(), configuration, names, values);
+    }
+
+    /**
+     * Returns the cached values for a key
+     *
+     * @param theme Theme the attributes are resolved with
+     * @param key Key from {@link #createKey(Context, AttributeSet, int)}
+     * @return the cached Builder or null
+     */
+    static synchronized FloatLabel.Builder get(Resources.Theme theme, Key key) {
+        final HashMap<Key, FloatLabel.Builder> entries = sCache.get(theme);
+        return entries == null ? null : entries.get(key);
+    }
+
+    /**
+     * Caches the resolved values for a key. The Builder must not hold a reference to an
+     * Activity Context and must not be modified afterward.
+     *
+     * @param theme Theme the attributes were resolved with
+     * @param key Key from {@link #createKey(Context, AttributeSet, int)}
+     * @param builder Builder holding the resolved values
+     */
+    static synchronized void put(Resources.Theme theme, Key key, FloatLabel.Builder builder) {
+        HashMap<Key, FloatLabel.Builder> entries = sCache.get(theme);
+        if (entries == null) {
+            entries = new HashMap<Key, FloatLabel.Builder>();
+            sCache.put(theme, entries);
+        }
+        if (entries.size() < MAX_ENTRIES_PER_THEME) {
+            entries.put(key, builder);
+        }
+    }
+
+    /**
+     * Drops the entries for a Theme, such as after it has been changed in place
+     *
+     * @param theme Theme whose entries to drop
+     */
+    static synchronized void invalidate(Resources.Theme theme) {
+        sCache.remove(theme);
+    }
+
+    /**
+     * Identifies a set of FloatLabel attribute values along with the styles and configuration
+     * they are resolved with
+     */
+    static final class Key {
+        private final int mDefStyle;
+        private final int mStyle;
+        private final Configuration mConfiguration;
+        private final int[] mNames;
+        private final String[] mValues;
+        private final int mHashCode;
+
+        Key(int defStyle, int style, Configuration configuration, int[] names, String[] values) {
+            mDefStyle = defStyle;
+            mStyle = style;
+            mConfiguration = configuration;
+            mNames = names;
+            mValues = values;
+
+            int hashCode = defStyle;
+            hashCode = 31 * hashCode + style;
+            hashCode = 31 * hashCode + configuration.hashCode();
+            hashCode = 31 * hashCode + Arrays.hashCode(names);
+            hashCode = 31 * hashCode + Arrays.hashCode(values);
+            mHashCode = hashCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return mHashCode == other.mHashCode && mDefStyle == other.mDefStyle && mStyle == other.mStyle
+                    && mConfiguration.equals(other.mConfiguration) && Arrays.equals(mNames, other.mNames)
+                    && Arrays.equals(mValues, other.mValues);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+    }
+}
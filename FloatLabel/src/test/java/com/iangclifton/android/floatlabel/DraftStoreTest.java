@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2014 Ian G. Clifton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iangclifton.android.floatlabel;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that drafts survive a new DraftStore on the same file, including after a write
+ * was cut short, and that the file is compacted
+ *
+ * @author Ian G. Clifton
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class DraftStoreTest {
+
+    /**
+     * Runs file access on the calling thread so that each flush is written before it returns
+     */
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mFile;
+
+    @Before
+    public void setUp() {
+        mFile = new File(mFolder.getRoot(), "drafts");
+    }
+
+    @Test
+    public void valuesSurviveANewStore() {
+        final DraftStore store = newStore();
+        store.put("name", "Ian");
+        store.put("city", "Seattle \u2603");
+        store.onTextChanged("email", "ian@example.com");
+        store.flush();
+
+        final HashMap<String, String> values = load(newStore(), "name", "city", "email");
+        assertEquals("Ian", values.get("name"));
+        assertEquals("Seattle \u2603", values.get("city"));
+        assertEquals("ian@example.com", values.get("email"));
+    }
+
+    @Test
+    public void onlyTheLatestEditIsWritten() throws IOException {
+        final DraftStore store = newStore();
+        for (int i = 1; i <= 50; i++) {
+            store.onTextChanged("name", "Ian".substring(0, 1 + i % 3));
+        }
+        store.onTextChanged("name", "Ian");
+        store.flush();
+
+        assertEquals(1, countRecords());
+        assertEquals("Ian", load(newStore(), "name").get("name"));
+    }
+
+    @Test
+    public void removedValuesStayRemoved() {
+        final DraftStore store = newStore();
+        store.put("name", "Ian");
+        store.put("city", "Seattle");
+        store.flush();
+        store.remove("name");
+        store.flush();
+
+        final HashMap<String, String> values = load(newStore(), "name", "city");
+        assertNull(values.get("name"));
+        assertEquals("Seattle", values.get("city"));
+    }
+
+    @Test
+    public void recoversFromTruncatedRecord() throws IOException {
+        final DraftStore store = newStore();
+        store.put("name", "Ian");
+        store.flush();
+        final long goodLength = mFile.length();
+        store.put("city", "Seattle");
+        store.flush();
+
+        // Cut the second record short, as if the process died while appending it
+        final RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        try {
+            file.setLength(goodLength + 5);
+        } finally {
+            file.close();
+        }
+
+        final DraftStore reopened = newStore();
+        final HashMap<String, String> values = load(reopened, "name", "city");
+        assertEquals("Ian", values.get("name"));
+        assertNull(values.get("city"));
+
+        // The partial record was dropped, so appending still works
+        assertEquals(goodLength, mFile.length());
+        reopened.put("city", "Portland");
+        reopened.flush();
+        assertEquals("Portland", load(newStore(), "city").get("city"));
+    }
+
+    @Test
+    public void fileIsCompactedAsEditsPileUp() throws IOException {
+        final DraftStore store = newStore();
+        for (int i = 0; i < 1000; i++) {
+            store.put("field " + (i % 4), "value " + i);
+            store.flush();
+        }
+
+        // Four live values and at most twice as many records plus the slack
+        final int records = countRecords();
+        assertTrue("The file holds " + records + " records", records <= 4 * 2 + 64);
+        final HashMap<String, String> values = load(newStore(), "field 0", "field 3");
+        assertEquals("value 996", values.get("field 0"));
+        assertEquals("value 999", values.get("field 3"));
+    }
+
+    /**
+     * Creates a store on the test file; the clock does not advance, so only flush writes
+     */
+    private DraftStore newStore() {
+        return new DraftStore(mFile, 1000, DIRECT_EXECUTOR);
+    }
+
+    /**
+     * Loads the given keys; with the direct executor and Robolectric's main looper, the
+     * listener is called before load returns
+     */
+    private static HashMap<String, String> load(DraftStore store, String... keys) {
+        final HashMap<String, String> values = new HashMap<String, String>();
+        for (String key : keys) {
+            store.load(key, new DraftStore.OnDraftLoadedListener() {
+                @Override
+                public void onDraftLoaded(String key, String value) {
+                    values.put(key, value);
+                }
+            });
+            assertTrue("Not loaded: " + key, values.containsKey(key));
+        }
+        return values;
+    }
+
+    /**
+     * Counts the key and value pairs in the file, each an int length (or -1 for a removed
+     * value) followed by UTF-8 bytes
+     */
+    private int countRecords() throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)));
+        try {
+            int records = 0;
+            while (in.available() > 0) {
+                skipString(in);
+                skipString(in);
+                records++;
+            }
+            return records;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void skipString(DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length > 0) {
+            in.readFully(new byte[length]);
+        }
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright (C) 2014 Ian G. Clifton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iangclifton.android.floatlabel;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Parcelable;
+import android.text.Editable;
+import android.text.InputType;
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.EditText;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.internal.Shadow;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Times and counts the bytes allocated by each phase of a FloatLabel's life against a plain
+ * EditText doing the same work.<br>
+ * <br>
+ * Only the allocations are checked. Times are printed for comparison between runs but are
+ * not asserted on, as Robolectric's method dispatch dominates them and they vary from run to
+ * run. Each phase is run once on every view to warm up before it is measured, so the first
+ * keystroke, which shows the label, is not counted.
+ *
+ * @author Ian G. Clifton
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, shadows = ShadowSharedAccessibilityManager.class)
+public class FloatLabelBenchmarkTest {
+    private static final int COUNT = 20;
+    private static final int KEYSTROKES = 50;
+    private static final int ROUNDS = 3;
+    private static final int WIDTH = 480;
+
+    /**
+     * A FloatLabel is an EditText plus a label, so each phase may allocate a few times what
+     * the EditText alone does
+     */
+    private static final int PHASE_FACTOR = 5;
+
+    /**
+     * Robolectric's Canvas records every call it is given, so drawing allocates for each view
+     * drawn; a FloatLabel draws itself, its label and its EditText
+     */
+    private static final int DRAW_FACTOR = 10;
+
+    /**
+     * Extra bytes a FloatLabel may allocate per keystroke on top of its EditText
+     */
+    private static final int KEYSTROKE_SLACK = 256;
+
+    /**
+     * Work done to a single view
+     */
+    private interface Phase {
+        void run(View view);
+    }
+
+    /**
+     * Creates the view under test
+     */
+    private interface Subject {
+        View create(Context context);
+    }
+
+    private static final Subject FLOAT_LABEL = new Subject() {
+        @Override
+        public View create(Context context) {
+            // Built in code, like the EditText, so no layout is parsed
+            return new FloatLabel.Builder(context).setLabel("Label").build();
+        }
+    };
+
+    private static final Subject EDIT_TEXT = new Subject() {
+        @Override
+        public View create(Context context) {
+            // Same input type as the EditText in the default layout
+            final EditText editText = new EditText(context);
+            editText.setInputType(InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_AUTO_CORRECT
+                    | InputType.TYPE_TEXT_FLAG_CAP_SENTENCES | InputType.TYPE_TEXT_FLAG_AUTO_COMPLETE);
+            editText.setHint("Label");
+            return editText;
+        }
+    };
+
+    private static final Phase MEASURE = new Phase() {
+        @Override
+        public void run(View view) {
+            view.forceLayout();
+            view.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        }
+    };
+
+    private static final Phase LAYOUT = new Phase() {
+        @Override
+        public void run(View view) {
+            // Moving the view makes it lay itself out again without being measured
+            final int left = view.getLeft() == 0 ? 1 : 0;
+            view.layout(left, 0, left + view.getMeasuredWidth(), view.getMeasuredHeight());
+        }
+    };
+
+    private static final Phase SAVE_RESTORE = new Phase() {
+        @Override
+        public void run(View view) {
+            final SparseArray<Parcelable> container = new SparseArray<Parcelable>();
+            view.saveHierarchyState(container);
+            view.restoreHierarchyState(container);
+        }
+    };
+
+    private static final Phase KEYSTROKES_PHASE = new Phase() {
+        @Override
+        public void run(View view) {
+            final EditText editText = view instanceof FloatLabel ? ((FloatLabel) view).getEditText() : (EditText) view;
+            final Editable text = editText.getText();
+            text.clear();
+            for (int i = 0; i < KEYSTROKES; i++) {
+                text.append((char) ('a' + i % 26));
+            }
+        }
+    };
+
+    private Context mContext;
+    private Canvas mCanvas;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mCanvas = new Canvas(Bitmap.createBitmap(WIDTH, 200, Bitmap.Config.ARGB_8888));
+    }
+
+    @Test
+    public void constructionAllocatesLikeAnEditTextAndLabel() {
+        // Warm up
+        create(FLOAT_LABEL);
+        create(EDIT_TEXT);
+
+        Measurement floatLabel = null;
+        Measurement editText = null;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            long bytes = allocatedBytes();
+            create(FLOAT_LABEL);
+            floatLabel = new Measurement(bytes, start).min(floatLabel);
+
+            start = System.nanoTime();
+            bytes = allocatedBytes();
+            create(EDIT_TEXT);
+            editText = new Measurement(bytes, start).min(editText);
+        }
+        assertWithinFactor("construction", PHASE_FACTOR, floatLabel, editText);
+    }
+
+    @Test
+    public void measureAllocatesLikeAnEditTextAndLabel() {
+        assertPhase("onMeasure", PHASE_FACTOR, MEASURE);
+    }
+
+    @Test
+    public void layoutAllocatesLikeAnEditTextAndLabel() {
+        assertPhase("onLayout", PHASE_FACTOR, MEASURE, LAYOUT);
+    }
+
+    @Test
+    public void drawAllocatesLikeAnEditTextAndLabel() {
+        final Canvas canvas = mCanvas;
+        assertPhase("draw", DRAW_FACTOR, MEASURE, LAYOUT, new Phase() {
+            @Override
+            public void run(View view) {
+                draw(view, canvas);
+            }
+        });
+    }
+
+    @Test
+    public void saveAndRestoreAllocateLikeAnEditText() {
+        assertPhase("save/restore", PHASE_FACTOR, SAVE_RESTORE);
+    }
+
+    @Test
+    public void keystrokesAllocateLittleMoreThanAnEditText() {
+        final View[] floatLabels = create(FLOAT_LABEL);
+        final View[] editTexts = create(EDIT_TEXT);
+        final Measurement floatLabel = measure(floatLabels, KEYSTROKES_PHASE);
+        final Measurement editText = measure(editTexts, KEYSTROKES_PHASE);
+        report("afterTextChanged", floatLabel, editText);
+
+        final long keystrokes = COUNT * KEYSTROKES;
+        final long extraPerKeystroke = (floatLabel.mBytes - editText.mBytes) / keystrokes;
+        assertTrue("A keystroke allocated " + extraPerKeystroke + " bytes more than in an EditText",
+                extraPerKeystroke <= KEYSTROKE_SLACK);
+    }
+
+    /**
+     * Runs the setup phases and then measures the last one on FloatLabels and EditTexts
+     */
+    private void assertPhase(String name, int factor, Phase... phases) {
+        final View[] floatLabels = create(FLOAT_LABEL);
+        final View[] editTexts = create(EDIT_TEXT);
+        final Phase measured = phases[phases.length - 1];
+        for (int i = 0; i < phases.length - 1; i++) {
+            measure(floatLabels, phases[i]);
+            measure(editTexts, phases[i]);
+        }
+        assertWithinFactor(name, factor, measure(floatLabels, measured), measure(editTexts, measured));
+    }
+
+    /**
+     * Draws the view and its children with the platform's View.draw. Robolectric's shadow of
+     * View.draw only records the background, so a ViewGroup draws none of its children that
+     * way; each child is drawn here instead, at its position.
+     */
+    private static void draw(View view, Canvas canvas) {
+        Shadow.directlyOn(view, View.class, "draw", ReflectionHelpers.ClassParameter.from(Canvas.class, canvas));
+        if (view instanceof ViewGroup) {
+            final ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                final View child = group.getChildAt(i);
+                final int saveCount = canvas.save();
+                canvas.translate(child.getLeft(), child.getTop());
+                draw(child, canvas);
+                canvas.restoreToCount(saveCount);
+            }
+        }
+    }
+
+    private View[] create(Subject subject) {
+        final View[] views = new View[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            views[i] = subject.create(mContext);
+            // Views without an ID save no state
+            views[i].setId(i + 1);
+        }
+        return views;
+    }
+
+    /**
+     * Runs the phase once on every view to warm up, then measures it on all of them, keeping
+     * the least of several rounds so that classes Robolectric loads on first use are not
+     * counted
+     */
+    private static Measurement measure(View[] views, Phase phase) {
+        for (View view : views) {
+            phase.run(view);
+        }
+        Measurement least = null;
+        for (int round = 0; round < ROUNDS; round++) {
+            final long start = System.nanoTime();
+            final long bytes = allocatedBytes();
+            for (View view : views) {
+                phase.run(view);
+            }
+            least = new Measurement(bytes, start).min(least);
+        }
+        return least;
+    }
+
+    private static void assertWithinFactor(String name, int factor, Measurement floatLabel, Measurement editText) {
+        report(name, floatLabel, editText);
+        assertTrue(name + " allocated " + floatLabel.mBytes + " bytes; an EditText took " + editText.mBytes,
+                floatLabel.mBytes <= editText.mBytes * factor);
+    }
+
+    private static void report(String name, Measurement floatLabel, Measurement editText) {
+        System.out.println(String.format("%-16s FloatLabel %8d bytes %6dus | EditText %8d bytes %6dus",
+                name, floatLabel.mBytes / COUNT, floatLabel.mNanos / COUNT / 1000,
+                editText.mBytes / COUNT, editText.mNanos / COUNT / 1000));
+    }
+
+    /**
+     * Bytes allocated by this thread so far
+     */
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Bytes allocated and time taken since a starting point
+     */
+    private static class Measurement {
+        final long mBytes;
+        final long mNanos;
+
+        Measurement(long startBytes, long startNanos) {
+            mNanos = System.nanoTime() - startNanos;
+            mBytes = allocatedBytes() - startBytes;
+        }
+
+        private Measurement(long bytes, long nanos, boolean unused) {
+            mBytes = bytes;
+            mNanos = nanos;
+        }
+
+        /**
+         * Returns the least bytes and time of this and the other Measurement, which may be null
+         */
+        Measurement min(Measurement other) {
+            if (other == null) {
+                return this;
+            }
+            return new Measurement(Math.min(mBytes, other.mBytes), Math.min(mNanos, other.mNanos), true);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2014 Ian G. Clifton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iangclifton.android.floatlabel;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.util.AttributeSet;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.xmlpull.v1.XmlPullParser;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares FloatLabels built in code with ones inflated from the default layout.<br>
+ * <br>
+ * The cost compared is the number of layouts parsed. Creation times under Robolectric are
+ * dominated by its own method dispatch and vary more between runs than between the two
+ * paths, so they are measured on a device with the example app's BenchmarkActivity instead.
+ *
+ * @author Ian G. Clifton
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class FloatLabelCreationTest {
+    private static final int COUNT = 20;
+
+    /**
+     * LayoutInflater that counts the layouts it parses
+     */
+    private static class CountingInflater extends LayoutInflater {
+        private static final String[] PREFIXES = {"android.widget.", "android.view."};
+
+        int mInflateCount;
+
+        CountingInflater(LayoutInflater original, Context newContext) {
+            super(original, newContext);
+        }
+
+        @Override
+        public LayoutInflater cloneInContext(Context newContext) {
+            return this;
+        }
+
+        @Override
+        public View inflate(XmlPullParser parser, ViewGroup root, boolean attachToRoot) {
+            mInflateCount++;
+            return super.inflate(parser, root, attachToRoot);
+        }
+
+        @Override
+        protected View onCreateView(String name, AttributeSet attrs) throws ClassNotFoundException {
+            for (String prefix : PREFIXES) {
+                try {
+                    return createView(name, prefix, attrs);
+                } catch (ClassNotFoundException e) {
+                    // Try the next package
+                }
+            }
+            return super.onCreateView(name, attrs);
+        }
+    }
+
+    private CountingInflater mInflater;
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        final Context application = RuntimeEnvironment.application;
+        mContext = new ContextWrapper(application) {
+            @Override
+            public Object getSystemService(String name) {
+                if (LAYOUT_INFLATER_SERVICE.equals(name)) {
+                    return mInflater;
+                }
+                return super.getSystemService(name);
+            }
+        };
+        mInflater = new CountingInflater(LayoutInflater.from(application), mContext);
+    }
+
+    @Test
+    public void builderParsesNoLayouts() {
+        final FloatLabel.Builder builder = new FloatLabel.Builder(mContext).setLabel("Label").setText("Text");
+        for (int i = 0; i < COUNT; i++) {
+            builder.build();
+        }
+        assertEquals(0, mInflater.mInflateCount);
+    }
+
+    @Test
+    public void inflatingParsesTheLayoutEveryTime() {
+        for (int i = 0; i < COUNT; i++) {
+            new FloatLabel(mContext);
+        }
+        assertEquals(COUNT, mInflater.mInflateCount);
+    }
+
+    @Test
+    public void builderMatchesInflatedMargin() {
+        final int inflated = getTopMargin(new FloatLabel(mContext));
+        assertEquals(inflated, getTopMargin(new FloatLabel.Builder(mContext).build()));
+        assertEquals(inflated, FloatLabel.getEditTextTopMargin(mContext.getResources().getDisplayMetrics()));
+    }
+
+    private static int getTopMargin(FloatLabel floatLabel) {
+        return ((ViewGroup.MarginLayoutParams) floatLabel.getEditText().getLayoutParams()).topMargin;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2014 Ian G. Clifton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iangclifton.android.floatlabel;
+
+import android.app.Activity;
+import android.view.View;
+import android.widget.LinearLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that display-mode FloatLabels in a form only create their EditTexts when needed
+ * and show validation errors without them
+ *
+ * @author Ian G. Clifton
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class FloatLabelDisplayModeTest {
+    private static final int FIELDS = 3;
+
+    /**
+     * Validates on the calling thread so that the error is shown before validate returns
+     */
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private static final FloatLabel.Validator REQUIRED = new FloatLabel.Validator() {
+        @Override
+        public CharSequence validate(String text) {
+            return text.length() == 0 ? "Required" : null;
+        }
+    };
+
+    private FloatLabel[] mFields;
+
+    @Before
+    public void setUp() {
+        final Activity activity = Robolectric.buildActivity(Activity.class).create().start().resume().visible().get();
+        final LinearLayout form = new LinearLayout(activity);
+        form.setOrientation(LinearLayout.VERTICAL);
+        final FloatLabel.Builder builder = new FloatLabel.Builder(activity).setDisplayMode(true);
+        mFields = new FloatLabel[FIELDS];
+        for (int i = 0; i < FIELDS; i++) {
+            mFields[i] = builder.setLabel("Field " + i).build();
+            form.addView(mFields[i]);
+        }
+        activity.setContentView(form);
+
+        // Views only drop focus when made unfocusable once they have been laid out
+        final View decor = activity.getWindow().getDecorView();
+        decor.measure(View.MeasureSpec.makeMeasureSpec(480, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(800, View.MeasureSpec.EXACTLY));
+        decor.layout(0, 0, 480, 800);
+    }
+
+    @Test
+    public void focusingAFieldLeavesTheOthersInDisplayMode() {
+        assertTrue(mFields[1].requestFocus());
+
+        final View editText = getEditText(mFields[1]);
+        assertNotNull(editText);
+        assertTrue(editText.isFocused());
+        assertNull(getEditText(mFields[0]));
+        assertNull(getEditText(mFields[2]));
+        assertFalse(mFields[0].hasFocus());
+        assertFalse(mFields[2].hasFocus());
+    }
+
+    @Test
+    public void errorOnAnEmptyFieldShowsTheLabelWithoutAnEditText() {
+        final FloatLabel field = mFields[0];
+        field.setValidator(REQUIRED, 0, DIRECT_EXECUTOR);
+        field.validate();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertEquals("Required", field.getError());
+        assertNull(getEditText(field));
+        assertEquals("Required", field.getLabel().getText().toString());
+        assertEquals(1f, field.getLabel().getAlpha(), 0f);
+    }
+
+    @Test
+    public void clearingTheErrorHidesTheLabelOfAnEmptyField() {
+        final FloatLabel field = mFields[0];
+        field.setValidator(REQUIRED, 0, DIRECT_EXECUTOR);
+        field.validate();
+        field.setValidator(null);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertNull(field.getError());
+        assertNull(getEditText(field));
+        assertEquals("Field 0", field.getLabel().getText().toString());
+        assertEquals(0f, field.getLabel().getAlpha(), 0f);
+    }
+
+    /**
+     * Returns the EditText without creating it, unlike FloatLabel.getEditText
+     */
+    private static View getEditText(FloatLabel floatLabel) {
+        return floatLabel.findViewById(R.id.edit_text);
+    }
+}
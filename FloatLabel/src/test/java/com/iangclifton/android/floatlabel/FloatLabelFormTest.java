@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2014 Ian G. Clifton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iangclifton.android.floatlabel;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.EditText;
+import android.widget.TextView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks that a FloatLabelForm stacks each label above its EditText without making the
+ * labels children, and that the labels rest at y 0 like the label of a FloatLabel
+ *
+ * @author Ian G. Clifton
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class FloatLabelFormTest {
+    private static final int FIELDS = 3;
+
+    private FloatLabelForm mForm;
+    private EditText[] mEditTexts;
+
+    @Before
+    public void setUp() {
+        final Context context = RuntimeEnvironment.application;
+        mForm = new FloatLabelForm(context);
+        mEditTexts = new EditText[FIELDS];
+        for (int i = 0; i < FIELDS; i++) {
+            mEditTexts[i] = new EditText(context);
+            mEditTexts[i].setHint("Field " + i);
+            mForm.addField(mEditTexts[i]);
+        }
+        layout();
+    }
+
+    @Test
+    public void labelsAreDrawnRatherThanAdded() {
+        assertEquals(FIELDS, mForm.getChildCount());
+        for (EditText editText : mEditTexts) {
+            final TextView label = mForm.getLabel(editText);
+            assertNotNull(label);
+            assertNull(label.getParent());
+            assertEquals(editText.getHint().toString(), label.getText().toString());
+        }
+    }
+
+    @Test
+    public void eachEditTextIsBelowItsLabel() {
+        int top = 0;
+        for (EditText editText : mEditTexts) {
+            top += mForm.getLabel(editText).getHeight();
+            final ViewGroup.MarginLayoutParams lp = (ViewGroup.MarginLayoutParams) editText.getLayoutParams();
+            assertEquals(top + lp.topMargin, editText.getTop());
+            top = editText.getBottom() + lp.bottomMargin;
+        }
+        assertEquals(top, mForm.getMeasuredHeight());
+    }
+
+    @Test
+    public void labelsRestAtTheTopOfTheirField() {
+        for (EditText editText : mEditTexts) {
+            final TextView label = mForm.getLabel(editText);
+            assertEquals(480, label.getWidth());
+            // LabelAnimators that move the label to y 0 leave it in place, as in a FloatLabel
+            assertEquals(0, label.getTop());
+            assertEquals(0f, label.getY(), 0f);
+        }
+    }
+
+    @Test
+    public void removingAnEditTextRemovesItsField() {
+        final EditText editText = mEditTexts[1];
+        final int topMargin = ((ViewGroup.MarginLayoutParams) editText.getLayoutParams()).topMargin;
+        mForm.removeView(editText);
+        assertNull(mForm.getLabel(editText));
+
+        mForm.addField(editText);
+        assertNotNull(mForm.getLabel(editText));
+        // The margin tightening the EditText against its label is not added twice
+        assertEquals(topMargin, ((ViewGroup.MarginLayoutParams) editText.getLayoutParams()).topMargin);
+    }
+
+    private void layout() {
+        mForm.measure(View.MeasureSpec.makeMeasureSpec(480, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        mForm.layout(0, 0, 480, mForm.getMeasuredHeight());
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2014 Ian G. Clifton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iangclifton.android.floatlabel;
+
+import android.content.Context;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that a FloatLabelGroup transaction validates and delivers each changed field's final
+ * text once, however many times it was set
+ *
+ * @author Ian G. Clifton
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class FloatLabelGroupTest {
+
+    /**
+     * Runs validation and value delivery on the calling thread
+     */
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    /**
+     * Records every text it validates and every value it is given
+     */
+    private static class Recorder implements FloatLabel.Validator, FloatLabel.ValueObserver {
+        final ArrayList<String> mValidated = new ArrayList<String>();
+        final ArrayList<String> mValues = new ArrayList<String>();
+
+        @Override
+        public CharSequence validate(String text) {
+            mValidated.add(text);
+            return null;
+        }
+
+        @Override
+        public void onValueChanged(String value) {
+            mValues.add(value);
+        }
+    }
+
+    private FloatLabelGroup mGroup;
+    private FloatLabel mChanged;
+    private FloatLabel mUnchanged;
+    private Recorder mChangedRecorder;
+    private Recorder mUnchangedRecorder;
+
+    @Before
+    public void setUp() {
+        final Context context = RuntimeEnvironment.application;
+        mGroup = new FloatLabelGroup();
+        mChanged = new FloatLabel.Builder(context).setLabel("Name").build();
+        mUnchanged = new FloatLabel.Builder(context).setLabel("City").build();
+        mChangedRecorder = observe(mChanged);
+        mUnchangedRecorder = observe(mUnchanged);
+        mGroup.add(mChanged);
+        mGroup.add(mUnchanged);
+    }
+
+    @Test
+    public void changedFieldIsHandledOnceWhenCommitted() {
+        mGroup.beginTransaction();
+        mChanged.setText("I");
+        mChanged.setText("Ia");
+        mChanged.setText("Ian");
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(Collections.<String>emptyList(), mChangedRecorder.mValidated);
+        assertEquals(Collections.<String>emptyList(), mChangedRecorder.mValues);
+
+        mGroup.commit();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(Arrays.asList("Ian"), mChangedRecorder.mValidated);
+        assertEquals(Arrays.asList("Ian"), mChangedRecorder.mValues);
+    }
+
+    @Test
+    public void unchangedFieldIsNotHandled() {
+        mGroup.beginTransaction();
+        mChanged.setText("Ian");
+        mGroup.commit();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertEquals(Collections.<String>emptyList(), mUnchangedRecorder.mValidated);
+        assertEquals(Collections.<String>emptyList(), mUnchangedRecorder.mValues);
+    }
+
+    private static Recorder observe(FloatLabel floatLabel) {
+        final Recorder recorder = new Recorder();
+        floatLabel.setValidator(recorder, 0, DIRECT_EXECUTOR);
+        floatLabel.setValueObserver(recorder, 0, 0, DIRECT_EXECUTOR);
+        return recorder;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2014 Ian G. Clifton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iangclifton.android.floatlabel;
+
+import android.content.Context;
+import android.graphics.drawable.ColorDrawable;
+import android.widget.TextView;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Counts the layout work caused by label and text changes that do not change the size of a
+ * FloatLabel, and checks that changes to the label that do change its size are measured
+ *
+ * @author Ian G. Clifton
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class FloatLabelLayoutTest {
+
+    private static class CountingParent extends FrameLayout {
+        int mRequestLayoutCount;
+
+        CountingParent(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void requestLayout() {
+            mRequestLayoutCount++;
+            super.requestLayout();
+        }
+    }
+
+    private static class CountingFloatLabel extends FloatLabel {
+        int mLayoutCount;
+
+        CountingFloatLabel(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+            mLayoutCount++;
+            super.onLayout(changed, left, top, right, bottom);
+        }
+    }
+
+    private CountingParent mParent;
+    private CountingFloatLabel mFloatLabel;
+
+    @Before
+    public void setUp() {
+        final Context context = RuntimeEnvironment.application;
+        mParent = new CountingParent(context);
+        mFloatLabel = new CountingFloatLabel(context);
+        mFloatLabel.setLabel("First name");
+        mParent.addView(mFloatLabel, ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+        layout();
+    }
+
+    @Test
+    public void changingTheHintDoesNotRequestLayout() {
+        mFloatLabel.setLabel("Last name");
+        assertNoLayout();
+    }
+
+    @Test
+    public void changingTheShownLabelDoesNotRequestLayout() {
+        mFloatLabel.setTextWithoutAnimation("Ian");
+        layout();
+        mFloatLabel.setLabel("Last name");
+        assertNoLayout();
+    }
+
+    @Test
+    public void showingAndHidingTheLabelDoesNotRequestLayout() {
+        mFloatLabel.setTextWithoutAnimation("I");
+        mFloatLabel.setTextWithoutAnimation("");
+        mFloatLabel.setTextWithoutAnimation("Ian");
+        assertNoLayout();
+    }
+
+    @Test
+    public void labelWithADrawableIsMeasuredWithIt() {
+        final ColorDrawable drawable = new ColorDrawable();
+        drawable.setBounds(0, 0, 40, 40);
+        final TextView label = mFloatLabel.getLabel();
+        label.setCompoundDrawables(drawable, null, null, null);
+        layout();
+        assertTrue("The label is " + label.getHeight() + "px high", label.getHeight() >= 40);
+    }
+
+    /**
+     * Checks that nothing asked the parent for layout since the last pass and that another
+     * pass does not lay out the FloatLabel again
+     */
+    private void assertNoLayout() {
+        assertEquals(0, mParent.mRequestLayoutCount);
+        assertFalse(mParent.isLayoutRequested());
+        layout();
+        assertEquals(0, mFloatLabel.mLayoutCount);
+    }
+
+    /**
+     * Measures and lays out the parent as a 480 pixel wide screen would, then resets the
+     * counts
+     */
+    private void layout() {
+        mParent.measure(View.MeasureSpec.makeMeasureSpec(480, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        mParent.layout(0, 0, 480, mParent.getMeasuredHeight());
+        mParent.mRequestLayoutCount = 0;
+        mFloatLabel.mLayoutCount = 0;
+    }
+}
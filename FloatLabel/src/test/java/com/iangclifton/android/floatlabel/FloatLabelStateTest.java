@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2014 Ian G. Clifton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iangclifton.android.floatlabel;
+
+import android.content.Context;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.util.SparseArray;
+import android.view.View;
+import android.widget.EditText;
+import android.widget.LinearLayout;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Saves and restores a 200 field form, checking the size of the parceled state against
+ * plain EditTexts. The time saving takes is printed but not asserted on, as it depends on
+ * the machine running the tests.
+ *
+ * @author Ian G. Clifton
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, shadows = ShadowSharedAccessibilityManager.class)
+public class FloatLabelStateTest {
+    private static final int FIELDS = 200;
+
+    @Test
+    public void savesAndRestoresTwoHundredFields() {
+        final Context context = RuntimeEnvironment.application;
+        final LinearLayout form = newForm(context);
+        final LinearLayout editTextForm = new LinearLayout(context);
+        for (int i = 0; i < FIELDS; i++) {
+            final FloatLabel floatLabel = (FloatLabel) form.getChildAt(i);
+            if (i % 2 == 0) {
+                floatLabel.setTextWithoutAnimation(getText(i));
+            }
+            final EditText editText = new EditText(context);
+            editText.setId(i + 1);
+            editText.setHint("Field " + i);
+            if (i % 2 == 0) {
+                editText.setText(getText(i));
+            }
+            editTextForm.addView(editText);
+        }
+
+        final long start = System.nanoTime();
+        final byte[] state = save(form);
+        final long saveMillis = (System.nanoTime() - start) / 1000000;
+        final int editTextSize = save(editTextForm).length;
+
+        // The label is not saved; only the EditText's state and two flags are added
+        assertTrue("Saved " + state.length + " bytes; plain EditTexts took " + editTextSize,
+                state.length <= editTextSize + FIELDS * 64);
+        System.out.println("Saving " + FIELDS + " fields took " + saveMillis + "ms");
+
+        final LinearLayout restored = newForm(context);
+        restore(restored, state);
+        for (int i = 0; i < FIELDS; i++) {
+            final FloatLabel floatLabel = (FloatLabel) restored.getChildAt(i);
+            final String expected = i % 2 == 0 ? getText(i) : "";
+            assertEquals(expected, floatLabel.getEditText().getText().toString());
+            assertEquals("Field " + i, floatLabel.getLabel().getText().toString());
+            assertEquals(i % 2 == 0 ? 1f : 0f, floatLabel.getLabel().getAlpha(), 0f);
+        }
+    }
+
+    private static LinearLayout newForm(Context context) {
+        final LinearLayout form = new LinearLayout(context);
+        form.setOrientation(LinearLayout.VERTICAL);
+        final FloatLabel.Builder builder = new FloatLabel.Builder(context);
+        for (int i = 0; i < FIELDS; i++) {
+            final FloatLabel floatLabel = builder.setLabel("Field " + i).build();
+            floatLabel.setId(i + 1);
+            form.addView(floatLabel);
+        }
+        return form;
+    }
+
+    private static String getText(int field) {
+        return "Value of field " + field;
+    }
+
+    private static byte[] save(View view) {
+        final SparseArray<Parcelable> container = new SparseArray<Parcelable>();
+        view.saveHierarchyState(container);
+        final Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeSparseArray(asObjects(container));
+            return parcel.marshall();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void restore(View view, byte[] state) {
+        final Parcel parcel = Parcel.obtain();
+        try {
+            parcel.unmarshall(state, 0, state.length);
+            parcel.setDataPosition(0);
+            final SparseArray<Parcelable> container = (SparseArray<Parcelable>) (SparseArray<?>)
+                    parcel.readSparseArray(FloatLabelStateTest.class.getClassLoader());
+            view.restoreHierarchyState(container);
+        } finally {
+            parcel.recycle();
+        }
+        // Pending state is applied when measured
+        view.measure(View.MeasureSpec.makeMeasureSpec(480, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SparseArray<Object> asObjects(SparseArray<Parcelable> container) {
+        return (SparseArray<Object>) (SparseArray<?>) container;
+    }
+}
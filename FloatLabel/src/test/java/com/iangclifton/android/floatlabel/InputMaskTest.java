@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2014 Ian G. Clifton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iangclifton.android.floatlabel;
+
+import android.text.InputFilter;
+import android.text.Selection;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks InputMask formatting as text is typed, pasted and deleted
+ *
+ * @author Ian G. Clifton
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class InputMaskTest {
+    private static final String PHONE = "(###) ###-####";
+
+    @Test
+    public void typingInsertsLiterals() {
+        final SpannableStringBuilder text = newText(PHONE);
+        for (char c : "5551234567".toCharArray()) {
+            text.append(c);
+        }
+        assertEquals("(555) 123-4567", text.toString());
+    }
+
+    @Test
+    public void pastingFormatsInOneEdit() {
+        final SpannableStringBuilder text = newText(PHONE);
+        text.append("5551234567");
+        assertEquals("(555) 123-4567", text.toString());
+    }
+
+    @Test
+    public void rejectsCharactersTheSlotDoesNotAccept() {
+        final SpannableStringBuilder text = newText("##/##");
+        text.append("1a2b3");
+        assertEquals("12/3", text.toString());
+    }
+
+    @Test
+    public void stopsAtTheEndOfTheMask() {
+        final SpannableStringBuilder text = newText("AA-##");
+        text.append("ab12345");
+        assertEquals("ab-12", text.toString());
+    }
+
+    @Test
+    public void inputThatFitsIsNotCopied() {
+        final InputMask mask = new InputMask(PHONE);
+        final SpannableStringBuilder dest = new SpannableStringBuilder("(555) 1");
+        // Digits in digit slots and typed literals need no formatting
+        assertNull(mask.filter("2", 0, 1, dest, 7, 7));
+        assertNull(mask.filter("3-", 0, 2, new SpannableStringBuilder("(555) 12"), 8, 8));
+    }
+
+    @Test
+    public void deletingInTheMiddleMovesTheRestBack() {
+        final SpannableStringBuilder text = newText(PHONE);
+        text.append("5551234567");
+        text.delete(2, 3);
+        assertEquals("(551) 234-567", text.toString());
+        assertEquals(2, Selection.getSelectionEnd(text));
+
+        text.append('8');
+        assertEquals("(551) 234-5678", text.toString());
+    }
+
+    @Test
+    public void insertingInTheMiddleMovesTheRestOn() {
+        final SpannableStringBuilder text = newText(PHONE);
+        text.append("555123456");
+        text.insert(6, "9");
+        assertEquals("(555) 912-3456", text.toString());
+        assertEquals(7, Selection.getSelectionEnd(text));
+
+        // The mask is full, so the last digit is dropped
+        text.insert(1, "0");
+        assertEquals("(055) 591-2345", text.toString());
+        assertEquals(2, Selection.getSelectionEnd(text));
+    }
+
+    @Test
+    public void deletingOnlyLiteralsDeletesTheDigitBefore() {
+        final SpannableStringBuilder text = newText(PHONE);
+        text.append("555123");
+        text.delete(5, 6);
+        assertEquals("(551) 23", text.toString());
+        assertEquals(3, Selection.getSelectionEnd(text));
+    }
+
+    @Test
+    public void deletingAtTheEndDropsTrailingLiterals() {
+        final SpannableStringBuilder text = newText(PHONE);
+        text.append("5551");
+        text.delete(6, 7);
+        assertEquals("(555", text.toString());
+        text.clear();
+        assertEquals("", text.toString());
+    }
+
+    @Test
+    public void replacingASelectionFormatsTheWholeText() {
+        final SpannableStringBuilder text = newText("AA-##");
+        text.append("ab12");
+        // Letters shifted into digit slots are dropped
+        text.replace(0, 3, "c");
+        assertEquals("c", text.toString());
+        text.append("d34");
+        assertEquals("cd-34", text.toString());
+    }
+
+    @Test
+    public void unmaskDropsLiterals() {
+        final InputMask mask = new InputMask(PHONE);
+        assertEquals("5551234567", mask.unmask("(555) 123-4567"));
+        assertEquals("555", mask.unmask("(555"));
+    }
+
+    /**
+     * Creates an Editable with the mask added as a filter and a TextWatcher, as FloatLabel
+     * adds it to its EditText
+     */
+    private static SpannableStringBuilder newText(String mask) {
+        final InputMask inputMask = new InputMask(mask);
+        final SpannableStringBuilder text = new SpannableStringBuilder();
+        text.setFilters(new InputFilter[] {inputMask});
+        text.setSpan(inputMask, 0, 0, Spanned.SPAN_INCLUSIVE_INCLUSIVE);
+        return text;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2014 Ian G. Clifton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iangclifton.android.floatlabel;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the incremental counts match a full recount and that a keystroke does not
+ * recount the whole text
+ *
+ * @author Ian G. Clifton
+ */
+public class LengthCounterTest {
+
+    /**
+     * Pieces to build text from. Stacked combining marks are left out because the JDK's own
+     * BreakIterator before Java 20 does not count them the same way at every offset.
+     */
+    private static final String[] PIECES = {
+            "a", "b", " ", "\u00E9",
+            // Regional indicators U, S and F
+            "\uD83C\uDDFA", "\uD83C\uDDF8", "\uD83C\uDDEB",
+            // Zero-width joiner and man
+            "\u200D", "\uD83D\uDC68",
+    };
+
+    @Test
+    public void countsMatchFullRecountAfterRandomEdits() {
+        final Random random = new Random(1);
+        for (int run = 0; run < 2000; run++) {
+            final StringBuilder text = randomText(random, random.nextInt(60));
+            final LengthCounter counter = new LengthCounter();
+            counter.reset(text);
+            for (int edit = 0; edit < 10; edit++) {
+                int start = random.nextInt(text.length() + 1);
+                if (start > 0 && start < text.length() && Character.isLowSurrogate(text.charAt(start))) {
+                    start--;
+                }
+                int end = start + random.nextInt(Math.min(6, text.length() - start) + 1);
+                if (end > 0 && end < text.length() && Character.isLowSurrogate(text.charAt(end))) {
+                    end++;
+                }
+                final String inserted = randomText(random, random.nextInt(3)).toString();
+
+                counter.beforeTextChanged(text, start, end - start);
+                text.replace(start, end, inserted);
+                counter.onTextChanged(text, end - start, inserted.length());
+
+                final LengthCounter expected = new LengthCounter();
+                expected.reset(text);
+                assertEquals(text.toString(), expected.getCodePointCount(), counter.getCodePointCount());
+                assertEquals(text.toString(), expected.getGraphemeCount(), counter.getGraphemeCount());
+            }
+        }
+    }
+
+    @Test
+    public void insertingRegionalIndicatorRecountsTheWholeRun() {
+        final StringBuilder text = new StringBuilder("x");
+        for (int i = 0; i < 40; i++) {
+            text.append("\uD83C\uDDFA\uD83C\uDDF8");
+        }
+        final LengthCounter counter = new LengthCounter();
+        counter.reset(text);
+
+        // Shifts the pairing of every indicator after it
+        counter.beforeTextChanged(text, 1, 0);
+        text.insert(1, "\uD83C\uDDEB");
+        counter.onTextChanged(text, 0, 2);
+
+        final LengthCounter expected = new LengthCounter();
+        expected.reset(text);
+        assertEquals(expected.getGraphemeCount(), counter.getGraphemeCount());
+    }
+
+    @Test
+    public void keystrokeCostDoesNotDependOnTextLength() {
+        final StringBuilder text = randomText(new Random(2), 50000);
+        final LengthCounter counter = new LengthCounter();
+        final int keystrokes = 2000;
+
+        // Warm up both paths before timing them
+        for (int i = 0; i < 5; i++) {
+            counter.reset(text);
+            type(counter, new StringBuilder(text), keystrokes);
+        }
+
+        long start = System.nanoTime();
+        counter.reset(text);
+        final long resetNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        type(counter, text, keystrokes);
+        final long perKeystrokeNanos = (System.nanoTime() - start) / keystrokes;
+
+        assertTrue("A keystroke took " + perKeystrokeNanos + "ns and a full count took "
+                + resetNanos + "ns", perKeystrokeNanos * 20 < resetNanos);
+    }
+
+    /**
+     * Types the given number of characters at the end of the text
+     */
+    private static void type(LengthCounter counter, StringBuilder text, int keystrokes) {
+        for (int i = 0; i < keystrokes; i++) {
+            final int position = text.length();
+            counter.beforeTextChanged(text, position, 0);
+            text.insert(position, 'a');
+            counter.onTextChanged(text, 0, 1);
+        }
+    }
+
+    private static StringBuilder randomText(Random random, int pieces) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < pieces; i++) {
+            sb.append(PIECES[random.nextInt(PIECES.length)]);
+        }
+        return sb;
+    }
+}
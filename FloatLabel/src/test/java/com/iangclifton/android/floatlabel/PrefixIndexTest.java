@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2014 Ian G. Clifton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iangclifton.android.floatlabel;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks PrefixIndex lookups against a linear scan
+ *
+ * @author Ian G. Clifton
+ */
+public class PrefixIndexTest {
+
+    @Test
+    public void cursorMatchesLinearScan() {
+        final String[] entries = randomEntries(new Random(1), 2000);
+        final PrefixIndex index = new PrefixIndex(entries);
+        final PrefixIndex.Cursor cursor = index.newCursor();
+        final Random random = new Random(2);
+        for (int i = 0; i < 200; i++) {
+            final String word = entries[random.nextInt(entries.length)];
+            // Typing narrows the previous range; starting over searches everything again
+            for (int length = 0; length <= word.length(); length++) {
+                final String prefix = word.substring(0, length);
+                cursor.moveTo(prefix);
+                final ArrayList<String> matches = new ArrayList<String>();
+                for (int position = cursor.getStart(); position < cursor.getEnd(); position++) {
+                    matches.add(index.get(position));
+                }
+                Collections.sort(matches);
+                assertEquals(prefix, linearScan(entries, prefix), matches);
+            }
+        }
+    }
+
+    @Test
+    public void lookupIgnoresCase() {
+        final PrefixIndex index = new PrefixIndex(new String[] {"Apple", "apricot", "Banana"});
+        final PrefixIndex.Cursor cursor = index.newCursor();
+        cursor.moveTo("AP");
+        assertEquals(2, cursor.getEnd() - cursor.getStart());
+        cursor.moveTo("b");
+        assertEquals(1, cursor.getEnd() - cursor.getStart());
+        assertEquals("Banana", index.get(cursor.getStart()));
+        cursor.moveTo("c");
+        assertEquals(0, cursor.getEnd() - cursor.getStart());
+    }
+
+    @Test
+    public void lookupIsFasterThanLinearScan() {
+        final String[] entries = randomEntries(new Random(3), 50000);
+        final PrefixIndex index = new PrefixIndex(entries);
+        final PrefixIndex.Cursor cursor = index.newCursor();
+        final String[] prefixes = new String[200];
+        final Random random = new Random(4);
+        for (int i = 0; i < prefixes.length; i++) {
+            final String word = entries[random.nextInt(entries.length)];
+            prefixes[i] = word.substring(0, 1 + random.nextInt(word.length()));
+        }
+
+        // Warm up both paths before timing them
+        int sink = 0;
+        for (int i = 0; i < 5; i++) {
+            sink += lookUp(cursor, prefixes) + scan(entries, prefixes);
+        }
+
+        long start = System.nanoTime();
+        sink += lookUp(cursor, prefixes);
+        final long indexNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        sink += scan(entries, prefixes);
+        final long scanNanos = System.nanoTime() - start;
+
+        assertTrue(sink > 0);
+        assertTrue("The index took " + indexNanos + "ns and a linear scan took " + scanNanos
+                + "ns", indexNanos * 20 < scanNanos);
+    }
+
+    private static int lookUp(PrefixIndex.Cursor cursor, String[] prefixes) {
+        int matches = 0;
+        for (String prefix : prefixes) {
+            cursor.moveTo(prefix);
+            matches += cursor.getEnd() - cursor.getStart();
+        }
+        return matches;
+    }
+
+    private static int scan(String[] entries, String[] prefixes) {
+        int matches = 0;
+        for (String prefix : prefixes) {
+            final String key = prefix.toLowerCase(Locale.ROOT);
+            for (String entry : entries) {
+                if (entry.toLowerCase(Locale.ROOT).startsWith(key)) {
+                    matches++;
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static ArrayList<String> linearScan(String[] entries, String prefix) {
+        final String key = prefix.toLowerCase(Locale.ROOT);
+        final ArrayList<String> matches = new ArrayList<String>();
+        for (String entry : entries) {
+            if (entry.toLowerCase(Locale.ROOT).startsWith(key)) {
+                matches.add(entry);
+            }
+        }
+        Collections.sort(matches);
+        return matches;
+    }
+
+    private static String[] randomEntries(Random random, int count) {
+        final String[] entries = new String[count];
+        for (int i = 0; i < count; i++) {
+            final int length = 1 + random.nextInt(8);
+            final StringBuilder sb = new StringBuilder(length);
+            for (int j = 0; j < length; j++) {
+                // A small alphabet so that prefixes have many matches
+                final char c = (char) ('a' + random.nextInt(6));
+                sb.append(random.nextBoolean() ? Character.toUpperCase(c) : c);
+            }
+            entries[i] = sb.toString();
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2014 Ian G. Clifton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iangclifton.android.floatlabel;
+
+import android.app.Application;
+import android.content.Context;
+import android.view.accessibility.AccessibilityManager;
+
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowAccessibilityManager;
+
+/**
+ * Shares one AccessibilityManager within a test. Robolectric's own shadow creates a new one,
+ * which registers more observers, every time a View sends an accessibility event, so each
+ * View created takes longer than the last and a form of hundreds of fields takes minutes.
+ *
+ * @author Ian G. Clifton
+ */
+@Implements(AccessibilityManager.class)
+public class ShadowSharedAccessibilityManager extends ShadowAccessibilityManager {
+    private static Application sApplication;
+    private static AccessibilityManager sInstance;
+
+    @Implementation
+    public static AccessibilityManager getInstance(Context context) throws Exception {
+        // Each test has a new Application
+        if (sInstance == null || sApplication != RuntimeEnvironment.application) {
+            sApplication = RuntimeEnvironment.application;
+            sInstance = ShadowAccessibilityManager.getInstance(context);
+        }
+        return sInstance;
+    }
+}
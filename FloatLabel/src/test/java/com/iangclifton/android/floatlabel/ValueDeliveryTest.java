@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2014 Ian G. Clifton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iangclifton.android.floatlabel;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that values delivered to a ValueObserver are coalesced while one is queued
+ *
+ * @author Ian G. Clifton
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class ValueDeliveryTest {
+
+    /**
+     * Executor that holds tasks until they are run by the test
+     */
+    private static class ManualExecutor implements Executor {
+        final ArrayList<Runnable> mTasks = new ArrayList<Runnable>();
+        int mExecuteCount;
+
+        @Override
+        public void execute(Runnable command) {
+            mExecuteCount++;
+            mTasks.add(command);
+        }
+
+        void runAll() {
+            while (!mTasks.isEmpty()) {
+                mTasks.remove(0).run();
+            }
+        }
+    }
+
+    private static class RecordingObserver implements FloatLabel.ValueObserver {
+        final ArrayList<String> mValues = new ArrayList<String>();
+
+        @Override
+        public void onValueChanged(String value) {
+            mValues.add(value);
+        }
+    }
+
+    @Test
+    public void valuesWhileQueuedReplaceEachOther() {
+        final ManualExecutor executor = new ManualExecutor();
+        final RecordingObserver observer = new RecordingObserver();
+        final FloatLabel.ValueDelivery delivery = new FloatLabel.ValueDelivery(observer, executor);
+
+        for (int i = 1; i <= 100; i++) {
+            delivery.deliver("value " + i);
+        }
+        assertEquals(1, executor.mExecuteCount);
+
+        executor.runAll();
+        assertEquals(Arrays.asList("value 100"), observer.mValues);
+    }
+
+    @Test
+    public void valueAfterDeliveryIsQueuedAgain() {
+        final ManualExecutor executor = new ManualExecutor();
+        final RecordingObserver observer = new RecordingObserver();
+        final FloatLabel.ValueDelivery delivery = new FloatLabel.ValueDelivery(observer, executor);
+
+        delivery.deliver("a");
+        executor.runAll();
+        delivery.deliver("ab");
+        delivery.deliver("abc");
+        executor.runAll();
+
+        assertEquals(2, executor.mExecuteCount);
+        assertEquals(Arrays.asList("a", "abc"), observer.mValues);
+    }
+
+    @Test
+    public void valueDuringDeliveryIsDeliveredByTheSameTask() {
+        final ManualExecutor executor = new ManualExecutor();
+        final ArrayList<String> values = new ArrayList<String>();
+        final FloatLabel.ValueDelivery[] delivery = new FloatLabel.ValueDelivery[1];
+        delivery[0] = new FloatLabel.ValueDelivery(new FloatLabel.ValueObserver() {
+            @Override
+            public void onValueChanged(String value) {
+                values.add(value);
+                if (values.size() == 1) {
+                    // Arrives while the observer is busy with the first value
+                    delivery[0].deliver("second");
+                    delivery[0].deliver("third");
+                }
+            }
+        }, executor);
+
+        delivery[0].deliver("first");
+        executor.runAll();
+
+        assertEquals(1, executor.mExecuteCount);
+        assertEquals(Arrays.asList("first", "third"), values);
+    }
+
+    @Test
+    public void cancelledDeliveryDropsPendingValue() {
+        final ManualExecutor executor = new ManualExecutor();
+        final RecordingObserver observer = new RecordingObserver();
+        final FloatLabel.ValueDelivery delivery = new FloatLabel.ValueDelivery(observer, executor);
+
+        delivery.deliver("a");
+        delivery.cancel();
+        executor.runAll();
+
+        assertEquals(0, observer.mValues.size());
+    }
+}
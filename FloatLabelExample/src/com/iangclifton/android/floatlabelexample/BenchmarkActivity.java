@@ -0,0 +1,219 @@
+package com.iangclifton.android.floatlabelexample;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Bundle;
+import android.os.Debug;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.text.Editable;
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.EditText;
+import android.widget.TextView;
+
+import com.iangclifton.android.floatlabel.FloatLabel;
+
+import java.util.Locale;
+
+/**
+ * Activity that measures the cost of FloatLabel next to a plain EditText and shows the
+ * results. Each phase (construction, measure, layout, draw, saving and restoring state and
+ * a keystroke) is timed over many iterations along with the number of objects allocated.
+ *
+ * @author Ian G. Clifton
+ */
+public class BenchmarkActivity extends Activity {
+
+    private static final int ITERATIONS = 200;
+    private static final int VIEW_ID = 1;
+
+    private TextView mResults;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_benchmark);
+        mResults = (TextView) findViewById(R.id.benchmark_results);
+
+        // Give the Activity a chance to draw before blocking the main thread
+        mResults.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                mResults.setText(runBenchmarks());
+            }
+        }, 500);
+    }
+
+    private String runBenchmarks() {
+        final Subject[] subjects = new Subject[] {
+                new Subject("EditText (baseline)") {
+                    @Override
+                    View create(Context context) {
+                        return new EditText(context);
+                    }
+
+                    @Override
+                    EditText getEditText(View view) {
+                        return (EditText) view;
+                    }
+                },
+                new Subject("FloatLabel (inflated)") {
+                    @Override
+                    View create(Context context) {
+                        return new FloatLabel(context);
+                    }
+                },
+                new Subject("FloatLabel (Builder)") {
+                    @Override
+                    View create(Context context) {
+                        return new FloatLabel.Builder(context).build();
+                    }
+                },
+                new Subject("FloatLabel (flattened)") {
+                    @Override
+                    View create(Context context) {
+                        return new FloatLabel.Builder(context).setLabelFlattened(true).build();
+                    }
+                },
+        };
+
+        final StringBuilder results = new StringBuilder();
+        for (Subject subject : subjects) {
+            subject.run(this, results);
+        }
+        return results.toString();
+    }
+
+    /**
+     * A kind of View to benchmark
+     */
+    private static abstract class Subject {
+        private final String mName;
+        private long mStartNanos;
+        private int mStartAllocations;
+
+        Subject(String name) {
+            mName = name;
+        }
+
+        abstract View create(Context context);
+
+        EditText getEditText(View view) {
+            return ((FloatLabel) view).getEditText();
+        }
+
+        @SuppressWarnings("deprecation")
+        void run(Context context, StringBuilder results) {
+            results.append(mName).append('\n');
+            Debug.startAllocCounting();
+
+            // Construction
+            begin();
+            for (int i = 0; i < ITERATIONS; i++) {
+                create(context);
+            }
+            end(results, "create", ITERATIONS);
+
+            final View view = create(context);
+            view.setId(VIEW_ID);
+            getEditText(view).setHint("Label");
+            final int width = context.getResources().getDisplayMetrics().widthPixels;
+            final int widthSpec = View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY);
+            final int heightSpec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+
+            // Measure
+            begin();
+            for (int i = 0; i < ITERATIONS; i++) {
+                forceLayout(view);
+                view.measure(widthSpec, heightSpec);
+            }
+            end(results, "measure", ITERATIONS);
+
+            // Layout; measuring is needed before each pass but is not counted
+            long layoutNanos = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                forceLayout(view);
+                view.measure(widthSpec, heightSpec);
+                final long start = System.nanoTime();
+                view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+                layoutNanos += System.nanoTime() - start;
+            }
+            results.append(String.format(Locale.US, "  layout: %.1f us\n", layoutNanos / 1000f / ITERATIONS));
+
+            // Draw
+            final Bitmap bitmap = Bitmap.createBitmap(Math.max(1, view.getWidth()), Math.max(1, view.getHeight()),
+                    Bitmap.Config.ARGB_8888);
+            final Canvas canvas = new Canvas(bitmap);
+            begin();
+            for (int i = 0; i < ITERATIONS; i++) {
+                view.draw(canvas);
+            }
+            end(results, "draw", ITERATIONS);
+            bitmap.recycle();
+
+            // Saving and restoring state
+            getEditText(view).setText("Some text");
+            final SparseArray<Parcelable> container = new SparseArray<Parcelable>();
+            begin();
+            for (int i = 0; i < ITERATIONS; i++) {
+                container.clear();
+                view.saveHierarchyState(container);
+                view.restoreHierarchyState(container);
+            }
+            end(results, "save/restore", ITERATIONS);
+            final Parcel parcel = Parcel.obtain();
+            parcel.writeSparseArray(castContainer(container));
+            results.append(String.format(Locale.US, "  saved state: %d bytes\n", parcel.dataSize()));
+            parcel.recycle();
+
+            // Keystrokes that do not change whether the field is empty
+            final Editable editable = getEditText(view).getText();
+            begin();
+            for (int i = 0; i < ITERATIONS; i++) {
+                editable.append('a');
+                editable.delete(editable.length() - 1, editable.length());
+            }
+            end(results, "keystroke", ITERATIONS * 2);
+
+            Debug.stopAllocCounting();
+            results.append('\n');
+        }
+
+        @SuppressWarnings("unchecked")
+        private static SparseArray<Object> castContainer(SparseArray<?> container) {
+            return (SparseArray<Object>) container;
+        }
+
+        @SuppressWarnings("deprecation")
+        private void begin() {
+            Debug.resetThreadAllocCount();
+            mStartAllocations = Debug.getThreadAllocCount();
+            mStartNanos = System.nanoTime();
+        }
+
+        @SuppressWarnings("deprecation")
+        private void end(StringBuilder results, String phase, int count) {
+            final long nanos = System.nanoTime() - mStartNanos;
+            final int allocations = Debug.getThreadAllocCount() - mStartAllocations;
+            results.append(String.format(Locale.US, "  %s: %.1f us, %.1f allocations\n", phase,
+                    nanos / 1000f / count, allocations / (float) count));
+        }
+
+        /**
+         * Marks a View and all of its descendants as needing layout so nothing is skipped
+         */
+        private static void forceLayout(View view) {
+            view.forceLayout();
+            if (view instanceof ViewGroup) {
+                final ViewGroup group = (ViewGroup) view;
+                for (int i = 0; i < group.getChildCount(); i++) {
+                    forceLayout(group.getChildAt(i));
+                }
+            }
+        }
+    }
+}
@@ -2,10 +2,14 @@ package com.iangclifton.android.floatlabelexample;
 
 import android.app.Activity;
 import android.content.Intent;
+import android.content.res.ColorStateList;
+import android.content.res.TypedArray;
 import android.os.Bundle;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
 
 import com.iangclifton.android.floatlabel.FloatLabel;
 
@@ -46,7 +50,10 @@ public class MainActivity extends Activity {
                 } else {
                     mTheme = android.R.style.Theme_Holo_Light_DarkActionBar;
                 }
-                recreate();
+                applyTheme();
+                return true;
+            case R.id.action_benchmark:
+                startActivity(new Intent(this, BenchmarkActivity.class));
                 return true;
             case R.id.action_about:
                 startActivity(new Intent(this, AboutActivity.class));
@@ -55,6 +62,40 @@ public class MainActivity extends Activity {
         return super.onOptionsItemSelected(item);
     }
 
+    /**
+     * Restyles the screen for the current theme without recreating the Activity
+     */
+    private void applyTheme() {
+        setTheme(mTheme);
+        final TypedArray a = getTheme().obtainStyledAttributes(new int[] {android.R.attr.textColorPrimary,
+                android.R.attr.windowBackground});
+        try {
+            getWindow().setBackgroundDrawable(a.getDrawable(1));
+            applyTheme((ViewGroup) findViewById(android.R.id.content), a.getColorStateList(0));
+        } finally {
+            a.recycle();
+        }
+    }
+
+    /**
+     * Applies the current theme to every FloatLabel in the given ViewGroup
+     *
+     * @param parent ViewGroup to search
+     * @param textColors ColorStateList for any other TextViews
+     */
+    private void applyTheme(ViewGroup parent, ColorStateList textColors) {
+        for (int i = 0; i < parent.getChildCount(); i++) {
+            final View child = parent.getChildAt(i);
+            if (child instanceof FloatLabel) {
+                ((FloatLabel) child).applyTheme(mTheme);
+            } else if (child instanceof TextView && textColors != null) {
+                ((TextView) child).setTextColor(textColors);
+            } else if (child instanceof ViewGroup) {
+                applyTheme((ViewGroup) child, textColors);
+            }
+        }
+    }
+
     @Override
     protected void onSaveInstanceState(Bundle outState) {
         super.onSaveInstanceState(outState);